@@ -29,19 +29,24 @@ import org.kitteh.irc.client.library.element.Channel;
 import org.kitteh.irc.client.library.element.ChannelUserMode;
 import org.kitteh.irc.client.library.element.MessageReceiver;
 import org.kitteh.irc.client.library.element.User;
+import org.kitteh.irc.client.library.util.CIKey;
 import org.kitteh.irc.client.library.util.CIKeyMap;
 import org.kitteh.irc.client.library.util.Sanity;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntUnaryOperator;
 import java.util.stream.Collectors;
 
 class ActorProvider {
@@ -74,6 +79,8 @@ class ActorProvider {
         private final Client client;
         private final long creationTime = System.currentTimeMillis();
         private final String name;
+        // Hash of the lowercased name, above it the case mapping ordinal + 1
+        private volatile long nameHash;
 
         private IRCActorSnapshot(@Nonnull String name, @Nonnull Client client) {
             this.client = client;
@@ -97,15 +104,82 @@ class ActorProvider {
             return this.name;
         }
 
+        protected final boolean nameEquals(@Nonnull IRCActorSnapshot other) {
+            return this.client.getServerInfo().getCaseMapping().areEqualIgnoringCase(this.name, other.name);
+        }
+
+        protected final int nameHashCode() {
+            CaseMapping caseMapping = this.client.getServerInfo().getCaseMapping();
+            long nameHash = this.nameHash;
+            if ((nameHash >>> 32) != (caseMapping.ordinal() + 1)) {
+                nameHash = ((long) (caseMapping.ordinal() + 1) << 32) | (caseMapping.lowerCaseHashCode(this.name) & 0xFFFFFFFFL);
+                this.nameHash = nameHash;
+            }
+            return (int) nameHash;
+        }
+    }
+
+    /**
+     * What is known about a nick sharing a channel with the client: its
+     * latest mask, if seen, and the channels it is in. Channels store
+     * members by the id alone.
+     */
+    private static final class TrackedNick {
+        private static final IRCChannel[] NO_CHANNELS = new IRCChannel[0];
+
+        private final int id;
+        private volatile String nick;
+        // Key of the nick, rebuilt when the nick or case mapping changes
+        @Nullable
+        private volatile CIKey key;
+        @Nullable
+        private volatile IRCUser user;
+        // Replaced on change, users being in few channels
+        private volatile IRCChannel[] channels = NO_CHANNELS;
+        // Replaced on change, so user snapshots can hold on to it as is
+        private volatile Set<String> channelNames = Collections.emptySet();
+
+        private TrackedNick(int id, @Nonnull String nick) {
+            this.id = id;
+            this.nick = nick;
+        }
+
         @Nonnull
-        protected String toLowerCase(@Nonnull String input) { // Shortcut
-            return this.client.getServerInfo().getCaseMapping().toLowerCase(input);
+        private CIKey key(@Nonnull CaseMapping caseMapping) {
+            CIKey key = this.key;
+            if ((key == null) || (key.getCaseMapping() != caseMapping)) {
+                this.key = key = new CIKey(this.nick, caseMapping);
+            }
+            return key;
+        }
+
+        private void setNick(@Nonnull String nick) {
+            this.nick = nick;
+            this.key = null;
+        }
+
+        private boolean isIn(@Nonnull IRCChannel channel) {
+            for (IRCChannel in : this.channels) {
+                if (in == channel) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void setChannels(@Nonnull IRCChannel[] channels) {
+            this.channels = channels;
+            this.channelNames = Collections.unmodifiableSet(Arrays.stream(channels).map(IRCChannel::getName).collect(Collectors.toSet()));
         }
     }
 
     class IRCChannel extends IRCActor {
-        private final Map<String, Set<ChannelUserMode>> modes;
-        private final Map<String, IRCUser> nickMap;
+        // Members by nick id, with prefix modes as bits in PREFIX order. Also
+        // the lock guarding changes against building snapshots
+        private final MemberTable members = new MemberTable();
+        // Snapshot of the current state, shared until the next change
+        @Nullable
+        private IRCChannelSnapshot snapshot;
         private volatile boolean fullListReceived;
         private long lastWho = System.currentTimeMillis();
         private String topic;
@@ -113,21 +187,38 @@ class ActorProvider {
         private Actor topicSetter;
         private long topicTime;
         private volatile boolean tracked;
+        // Key of the name, rebuilt when the case mapping changes
+        @Nullable
+        private volatile CIKey key;
 
         private IRCChannel(@Nonnull String channel, @Nonnull InternalClient client) {
             super(channel, client);
-            this.modes = new CIKeyMap<>(this.getClient());
-            this.nickMap = new CIKeyMap<>(this.getClient());
-            ActorProvider.this.trackedChannels.put(channel, this);
+            ActorProvider.this.trackedChannels.putByKey(this.key(), this);
+        }
+
+        @Nonnull
+        private CIKey key() {
+            CIKey key = this.key;
+            CaseMapping caseMapping = this.getClient().getServerInfoSnapshot().getCaseMapping();
+            if ((key == null) || (key.getCaseMapping() != caseMapping)) {
+                this.key = key = new CIKey(this.getName(), caseMapping);
+            }
+            return key;
         }
 
         @Nullable
         IRCUser getUser(@Nullable String nick) {
-            return this.nickMap.get(nick);
+            TrackedNick trackedNick = ActorProvider.this.trackedNicks.get(nick);
+            if (trackedNick == null) {
+                return null;
+            }
+            synchronized (this.members) {
+                return this.members.contains(trackedNick.id) ? trackedNick.user : null;
+            }
         }
 
         void setListReceived() {
-            this.fullListReceived = true;
+            this.change(() -> this.fullListReceived = true);
         }
 
         private void setTracked(boolean tracked) {
@@ -135,39 +226,82 @@ class ActorProvider {
         }
 
         void setTopic(@Nonnull String topic) {
-            this.topic = topic;
-            this.topicTime = -1;
-            this.topicSetter = null;
+            this.change(() -> {
+                this.topic = topic;
+                this.topicTime = -1;
+                this.topicSetter = null;
+            });
         }
 
         void setTopic(long time, @Nonnull Actor user) {
-            this.topicTime = time;
-            this.topicSetter = user;
+            this.change(() -> {
+                this.topicTime = time;
+                this.topicSetter = user;
+            });
         }
 
         @Override
         @Nonnull
         IRCChannelSnapshot snapshot() {
-            synchronized (this.modes) {
+            this.requestFullList();
+            synchronized (this.members) {
+                if (this.snapshot == null) {
+                    Channel.Topic topic = new IRCChannelTopicSnapshot(this.topicTime, this.topic, this.topicSetter);
+                    this.snapshot = new IRCChannelSnapshot(this, this.getClient(), this.fullListReceived, topic);
+                }
+                return this.snapshot;
+            }
+        }
+
+        /**
+         * Asks again for the member list of a tracked channel if it has not
+         * arrived yet, at most every five seconds.
+         */
+        void requestFullList() {
+            synchronized (this.members) {
                 if (this.tracked && !this.fullListReceived) {
                     long now = System.currentTimeMillis();
                     if ((now - this.lastWho) > 5000) {
                         this.lastWho = now;
-                        this.getClient().sendRawLineAvoidingDuplication("WHO " + this.getName());
+                        this.getClient().sendRawLineAvoidingDuplication("WHO " + this.getName(), MessagePriority.CONTROL);
                     }
                 }
             }
-            Channel.Topic topic = new IRCChannelTopicSnapshot(this.topicTime, this.topic, this.topicSetter);
-            return new IRCChannelSnapshot(this.getName(), this.modes, this.nickMap, this.getClient(), this.fullListReceived, topic);
+        }
+
+        /**
+         * Makes a change to the channel's state or that of its members.
+         *
+         * @param change change to make
+         */
+        void change(@Nonnull Runnable change) {
+            synchronized (this.members) {
+                this.changing();
+                change.run();
+            }
+        }
+
+        /**
+         * Retires the current snapshot ahead of a change, first handing it a
+         * flat copy of the members it was taken of if nobody has yet built
+         * its contents.
+         */
+        void changing() {
+            synchronized (this.members) {
+                if (this.snapshot != null) {
+                    this.snapshot.retire(this);
+                    this.snapshot = null;
+                }
+            }
         }
 
         void trackNick(@Nonnull String nick, @Nonnull Set<ChannelUserMode> modes) {
-            this.getModes(nick).addAll(modes);
+            int bits = ActorProvider.this.toModeBits(modes);
+            this.updateModes(nick, current -> current | bits);
         }
 
         void trackUser(@Nonnull IRCUser user, @Nullable Set<ChannelUserMode> modes) {
-            this.nickMap.put(user.getNick(), user);
-            this.modes.put(user.getNick(), (modes == null) ? new HashSet<>() : new HashSet<>(modes));
+            this.change(() -> this.members.put(ActorProvider.this.trackMember(user.getNick(), this, user).id, ActorProvider.this.toModeBits(modes)));
         }
 
         void trackUserJoin(@Nonnull IRCUser user) {
@@ -175,32 +309,29 @@ class ActorProvider {
         }
 
         void trackUserModeAdd(@Nonnull String nick, @Nonnull ChannelUserMode mode) {
-            this.getModes(nick).add(mode);
+            int bit = ActorProvider.this.toModeBit(mode);
+            this.updateModes(nick, current -> current | bit);
         }
 
         void trackUserModeRemove(@Nonnull String nick, @Nonnull ChannelUserMode mode) {
-            this.getModes(nick).remove(mode);
-        }
-
-        void trackUserNick(@Nonnull IRCUser oldUser, @Nonnull IRCUser newUser) {
-            if (this.nickMap.remove(oldUser.getNick()) != null) {
-                this.trackUser(newUser, this.modes.remove(oldUser.getNick()));
-            }
+            int bit = ActorProvider.this.toModeBit(mode);
+            this.updateModes(nick, current -> current & ~bit);
         }
 
         void trackUserPart(@Nonnull IRCUser user) {
-            this.modes.remove(user.getNick());
-            this.nickMap.remove(user.getNick());
+            this.change(() -> {
+                TrackedNick trackedNick = ActorProvider.this.trackedNicks.get(user.getNick());
+                if ((trackedNick != null) && this.members.remove(trackedNick.id)) {
+                    ActorProvider.this.untrackMember(trackedNick, this);
+                }
+            });
         }
 
-        @Nonnull
-        private Set<ChannelUserMode> getModes(@Nonnull String nick) {
-            Set<ChannelUserMode> set = this.modes.get(nick);
-            if (set == null) {
-                set = new HashSet<>();
-                this.modes.put(nick, set);
-            }
-            return set;
+        private void updateModes(@Nonnull String nick, @Nonnull IntUnaryOperator update) {
+            this.change(() -> {
+                int id = ActorProvider.this.trackMember(nick, this, null).id;
+                this.members.put(id, update.applyAsInt(Math.max(this.members.get(id), 0)));
+            });
         }
     }
 
@@ -233,32 +364,128 @@ class ActorProvider {
         }
     }
 
+    /**
+     * A flat copy of a channel's members, cheap to take whenever a channel
+     * changes, from which a retired snapshot builds its contents on first
+     * use.
+     */
+    private final class MemberCopy {
+        private final List<ChannelUserMode> prefixes;
+        private final int[] modes;
+        private final String[] nicks;
+        private final IRCUser[] users;
+        private final Set<String>[] channels;
+        private int size;
+
+        // Called holding the channel's lock
+        @SuppressWarnings("unchecked")
+        private MemberCopy(@Nonnull IRCChannel channel) {
+            this.prefixes = channel.getClient().getServerInfoSnapshot().getChannelUserModes();
+            int capacity = channel.members.size();
+            this.modes = new int[capacity];
+            this.nicks = new String[capacity];
+            this.users = new IRCUser[capacity];
+            this.channels = (Set<String>[]) new Set<?>[capacity];
+            channel.members.forEach((id, bits) -> {
+                TrackedNick trackedNick = ActorProvider.this.trackedIds.get(id);
+                if (trackedNick != null) {
+                    this.modes[this.size] = bits;
+                    this.nicks[this.size] = trackedNick.nick;
+                    this.users[this.size] = trackedNick.user;
+                    this.channels[this.size] = trackedNick.channelNames;
+                    this.size++;
+                }
+            });
+        }
+    }
+
     class IRCChannelSnapshot extends IRCMessageReceiverSnapshot implements Channel {
-        private final Map<String, Set<ChannelUserMode>> modes;
-        private final List<String> names;
-        private final Map<String, User> nickMap;
-        private final List<User> users;
+        // The channel while its state is still that of this snapshot
+        @Nullable
+        private volatile IRCChannel channel;
+        // Members as of this snapshot, once the channel has changed
+        @Nullable
+        private volatile MemberCopy memberCopy;
+        private volatile boolean built;
+        private Map<String, Set<ChannelUserMode>> modes;
+        private List<String> names;
+        private Map<String, User> nickMap;
+        private List<User> users;
         private final boolean complete;
         private final Topic topic;
 
-        private IRCChannelSnapshot(@Nonnull String channel, @Nonnull Map<String, Set<ChannelUserMode>> modes, @Nonnull Map<String, IRCUser> nickMap, @Nonnull InternalClient client, boolean complete, @Nonnull Topic topic) {
-            super(channel, client);
+        private IRCChannelSnapshot(@Nonnull IRCChannel channel, @Nonnull InternalClient client, boolean complete, @Nonnull Topic topic) {
+            super(channel.getName(), client);
+            this.channel = channel;
             this.complete = complete;
             this.topic = topic;
-            Map<String, Set<ChannelUserMode>> newModes = new CIKeyMap<>(client);
-            newModes.putAll(modes);
-            this.modes = Collections.unmodifiableMap(newModes);
-            this.names = Collections.unmodifiableList(new ArrayList<>(this.modes.keySet()));
-            Map<String, User> newNickMap = new CIKeyMap<>(client);
-            nickMap.forEach((nick, user) -> newNickMap.put(nick, user.snapshot()));
-            this.nickMap = Collections.unmodifiableMap(newNickMap);
-            this.users = Collections.unmodifiableList(new ArrayList<>(this.nickMap.values()));
+        }
+
+        /**
+         * Hands over a copy of the members ahead of the channel changing,
+         * unless the contents are already built. Called holding the
+         * channel's lock.
+         *
+         * @param channel the channel
+         */
+        private void retire(@Nonnull IRCChannel channel) {
+            if (!this.built) {
+                this.memberCopy = new MemberCopy(channel);
+            }
+            this.channel = null;
+        }
+
+        /**
+         * Builds the member lists on first use, from the copy handed over
+         * when the channel changed or else from the unchanged channel.
+         */
+        private void materialize() {
+            if (this.built) {
+                return;
+            }
+            synchronized (this) {
+                if (this.built) {
+                    return;
+                }
+                MemberCopy copy = this.memberCopy;
+                if (copy == null) {
+                    IRCChannel channel = this.channel;
+                    if (channel != null) {
+                        synchronized (channel.members) {
+                            copy = this.memberCopy; // Unless retired meanwhile, the channel is unchanged
+                            if (copy == null) {
+                                copy = new MemberCopy(channel);
+                            }
+                        }
+                    } else {
+                        copy = this.memberCopy; // Retired since first checked
+                    }
+                }
+                Map<Integer, Set<ChannelUserMode>> modeSets = new HashMap<>(); // Shared by members with the same modes
+                Map<String, Set<ChannelUserMode>> newModes = new CIKeyMap<>(this.getClient());
+                Map<String, User> newNickMap = new CIKeyMap<>(this.getClient());
+                final List<ChannelUserMode> prefixes = copy.prefixes;
+                for (int i = 0; i < copy.size; i++) {
+                    newModes.put(copy.nicks[i], modeSets.computeIfAbsent(copy.modes[i], key -> toModes(key, prefixes)));
+                    IRCUser user = copy.users[i];
+                    if (user != null) {
+                        newNickMap.put(copy.nicks[i], user.snapshot(copy.channels[i]));
+                    }
+                }
+                this.modes = Collections.unmodifiableMap(newModes);
+                this.names = Collections.unmodifiableList(new ArrayList<>(this.modes.keySet()));
+                this.nickMap = Collections.unmodifiableMap(newNickMap);
+                this.users = Collections.unmodifiableList(new ArrayList<>(this.nickMap.values()));
+                this.built = true;
+                this.memberCopy = null;
+                this.channel = null;
+            }
         }
 
         @Override
         public boolean equals(Object o) {
             // RFC 2812 section 1.3 'Channel names are case insensitive.'
-            return (o instanceof IRCChannelSnapshot) && (((IRCChannelSnapshot) o).getClient() == this.getClient()) && this.toLowerCase(((Channel) o).getName()).equals(this.toLowerCase((this.getName())));
+            return (o instanceof IRCChannelSnapshot) && (((IRCChannelSnapshot) o).getClient() == this.getClient()) && this.nameEquals((IRCChannelSnapshot) o);
         }
 
         @Nonnull
@@ -270,6 +497,7 @@ class ActorProvider {
         @Nonnull
         @Override
         public List<String> getNicknames() {
+            this.materialize();
             return this.names;
         }
 
@@ -283,6 +511,7 @@ class ActorProvider {
         @Override
         public User getUser(@Nonnull String nick) {
             Sanity.nullCheck(nick, "Nick cannot be null");
+            this.materialize();
             return this.nickMap.get(nick);
         }
 
@@ -290,12 +519,14 @@ class ActorProvider {
         @Override
         public Set<ChannelUserMode> getUserModes(@Nonnull String nick) {
             Sanity.nullCheck(nick, "Nick cannot be null");
+            this.materialize();
             return this.modes.get(nick);
         }
 
         @Nonnull
         @Override
         public List<User> getUsers() {
+            this.materialize();
             return this.users;
         }
 
@@ -307,7 +538,7 @@ class ActorProvider {
         @Override
         public int hashCode() {
             // RFC 2812 section 1.3 'Channel names are case insensitive.'
-            return (this.toLowerCase(this.getName()).hashCode() * 2) + this.getClient().hashCode();
+            return (this.nameHashCode() * 2) + this.getClient().hashCode();
         }
     }
 
@@ -365,7 +596,13 @@ class ActorProvider {
         @Override
         @Nonnull
         IRCUserSnapshot snapshot() {
-            return new IRCUserSnapshot(this.getName(), this.nick, this.user, this.host, this.getClient());
+            TrackedNick trackedNick = ActorProvider.this.trackedNicks.get(this.nick);
+            return this.snapshot((trackedNick == null) ? Collections.emptySet() : trackedNick.channelNames);
+        }
+
+        @Nonnull
+        IRCUserSnapshot snapshot(@Nonnull Set<String> channels) {
+            return new IRCUserSnapshot(this.getName(), this.nick, this.user, this.host, channels, this.getClient());
         }
     }
 
@@ -375,17 +612,17 @@ class ActorProvider {
         private final String nick;
         private final String user;
 
-        private IRCUserSnapshot(@Nonnull String mask, @Nonnull String nick, @Nonnull String user, @Nonnull String host, @Nonnull InternalClient client) {
+        private IRCUserSnapshot(@Nonnull String mask, @Nonnull String nick, @Nonnull String user, @Nonnull String host, @Nonnull Set<String> channels, @Nonnull InternalClient client) {
             super(mask, client);
             this.nick = nick;
             this.user = user;
             this.host = host;
-            this.channels = Collections.unmodifiableSet(ActorProvider.this.trackedChannels.values().stream().filter(channel -> channel.getUser(nick) != null).map(IRCChannel::getName).collect(Collectors.toSet()));
+            this.channels = channels;
         }
 
         @Override
         public boolean equals(Object o) {
-            return (o instanceof IRCUserSnapshot) && (((IRCUserSnapshot) o).getClient() == this.getClient()) && this.toLowerCase(((IRCUserSnapshot) o).getName()).equals(this.toLowerCase((this.getName())));
+            return (o instanceof IRCUserSnapshot) && (((IRCUserSnapshot) o).getClient() == this.getClient()) && this.nameEquals((IRCUserSnapshot) o);
         }
 
         @Nonnull
@@ -420,53 +657,118 @@ class ActorProvider {
 
         @Override
         public int hashCode() {
-            return (this.toLowerCase(this.getName()).hashCode() * 2) + this.getClient().hashCode();
+            return (this.nameHashCode() * 2) + this.getClient().hashCode();
         }
     }
 
+    private static final int ACTOR_CACHE_SIZE = 1024;
+
     private final InternalClient client;
 
     // Valid nick chars: \w\[]^`{}|-_
     // Pattern unescaped: ([\w\\\[\]\^`\{\}\|\-_]+)!([~\w]+)@([\w\.\-:]+)
     // You know what? Screw it.
     // Let's just do it assuming no IRCD can handle following the rules.
-    // New pattern: ([^!@]+)!([^!@]+)@([^!@]+)
-    private final Pattern nickPattern = Pattern.compile("([^!@]+)!([^!@]+)@([^!@]+)");
+    // Masks are split by hand as nick!user@host, each part non-empty and free of ! and @
 
-    private final Map<String, IRCChannel> trackedChannels;
+    // Users and other non-channel actors by exact name, least recently used first
+    private final Map<String, IRCActor> actorCache = new LinkedHashMap<String, IRCActor>(ACTOR_CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, IRCActor> eldest) {
+            if (this.size() > ACTOR_CACHE_SIZE) {
+                ActorProvider.this.unindexActor(eldest.getKey(), eldest.getValue());
+                return true;
+            }
+            return false;
+        }
+    };
+    // Names of cached users by case folded nick, so a nick's masks are evicted without a scan
+    private final Map<String, Set<String>> actorCacheNicks = new HashMap<>();
+
+    private final CIKeyMap<IRCChannel> trackedChannels;
+    // Every nick in a channel, with its user and channels, so each user is tracked once
+    private final CIKeyMap<TrackedNick> trackedNicks;
+    private final Map<Integer, TrackedNick> trackedIds = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger();
 
     ActorProvider(@Nonnull InternalClient client) {
         this.client = client;
         this.trackedChannels = new CIKeyMap<>(this.client);
+        this.trackedNicks = new CIKeyMap<>(this.client);
     }
 
     void channelTrack(@Nonnull IRCChannel channel) {
-        this.trackedChannels.put(channel.getName(), channel);
+        this.trackedChannels.putByKey(channel.key(), channel);
         channel.setTracked(true);
     }
 
     void channelUntrack(@Nonnull IRCChannel channel) {
-        this.trackedChannels.remove(channel.getName());
+        this.trackedChannels.removeByKey(channel.key());
         channel.setTracked(false);
+        channel.change(() -> {
+            channel.members.forEach((id, bits) -> {
+                TrackedNick trackedNick = this.trackedIds.get(id);
+                if (trackedNick != null) {
+                    this.untrackMember(trackedNick, channel);
+                }
+            });
+            channel.members.clear();
+        });
+    }
+
+    /**
+     * Stops tracking all channels, such as after losing the connection.
+     */
+    void channelUntrackAll() {
+        this.trackedChannels.values().forEach(channel -> {
+            channel.setTracked(false);
+            channel.changing();
+        });
+        this.trackedChannels.clear();
+        this.trackedNicks.clear();
+        this.trackedIds.clear();
+    }
+
+    /**
+     * Forgets cached actors, such as when server information changes which
+     * names are channels or how they compare.
+     */
+    void clearActorCache() {
+        synchronized (this.actorCache) {
+            this.actorCache.clear();
+            this.actorCacheNicks.clear();
+        }
     }
 
     @Nonnull
     IRCActor getActor(@Nonnull String name) {
-        Matcher nickMatcher = this.nickPattern.matcher(name);
-        if (nickMatcher.matches()) {
-            return new IRCUser(name, nickMatcher.group(1), nickMatcher.group(2), nickMatcher.group(3), this.client);
+        synchronized (this.actorCache) {
+            IRCActor actor = this.actorCache.get(name);
+            if (actor != null) {
+                return actor;
+            }
         }
-        IRCChannel channel = this.getChannel(name);
-        if (channel != null) {
-            return channel;
+        IRCActor actor = this.parseUser(name);
+        if (actor == null) {
+            IRCChannel channel = this.getChannel(name);
+            if (channel != null) {
+                return channel; // Channels hold live state and are tracked separately
+            }
+            actor = new IRCActor(name, this.client);
+        }
+        synchronized (this.actorCache) {
+            this.actorCache.put(name, actor);
+            if (actor instanceof IRCUser) {
+                this.actorCacheNicks.computeIfAbsent(this.foldNick((IRCUser) actor), nick -> new HashSet<>(2)).add(name);
+            }
         }
-        return new IRCActor(name, this.client);
+        return actor;
     }
 
     @Nullable
     IRCChannel getChannel(@Nonnull String name) {
         IRCChannel channel = this.trackedChannels.get(name);
-        if ((channel == null) && this.client.getServerInfo().isValidChannel(name)) {
+        if ((channel == null) && this.client.getServerInfoSnapshot().isValidChannel(name)) {
             channel = new IRCChannel(name, this.client);
         }
         return channel;
@@ -474,12 +776,208 @@ class ActorProvider {
 
     @Nonnull
     IRCUser trackUserNick(@Nonnull IRCUser user, @Nonnull String newNick) {
+        this.evictActor(user);
         IRCUser newUser = (IRCUser) this.getActor(newNick + user.getName().substring(user.getName().indexOf('!'), user.getName().length()));
-        this.trackedChannels.values().forEach(channel -> channel.trackUserNick(user, newUser));
+        TrackedNick trackedNick = this.trackedNicks.get(user.getNick());
+        if (trackedNick != null) {
+            // Members are stored by id, so channels only need new snapshots
+            changeAll(trackedNick.channels, () -> {
+                this.trackedNicks.removeByKey(this.keyOf(trackedNick));
+                trackedNick.setNick(newNick);
+                trackedNick.user = newUser;
+                this.trackedNicks.putByKey(this.keyOf(trackedNick), trackedNick);
+            });
+        }
         return newUser;
     }
 
     void trackUserQuit(@Nonnull IRCUser user) {
-        this.trackedChannels.values().forEach(channel -> channel.trackUserPart(user));
+        this.evictActor(user);
+        TrackedNick trackedNick = this.trackedNicks.get(user.getNick());
+        if (trackedNick != null) {
+            for (IRCChannel channel : trackedNick.channels) {
+                channel.change(() -> channel.members.remove(trackedNick.id));
+            }
+            this.trackedNicks.removeByKey(this.keyOf(trackedNick));
+            this.trackedIds.remove(trackedNick.id);
+        }
+    }
+
+    /**
+     * Remaps every member's prefix mode bits to a new PREFIX order, while
+     * switching to it, so no snapshot sees bits of one order read by the
+     * other.
+     *
+     * @param previous prefix modes before
+     * @param next prefix modes after
+     * @param switchModes switches the server information to the new modes
+     */
+    void channelUserModesChange(@Nonnull List<ChannelUserMode> previous, @Nonnull List<ChannelUserMode> next, @Nonnull Runnable switchModes) {
+        int[] remap = new int[Math.min(previous.size(), Integer.SIZE)];
+        for (int i = 0; i < remap.length; i++) {
+            remap[i] = -1;
+            for (int j = 0; (j < next.size()) && (j < Integer.SIZE); j++) {
+                if (next.get(j).getMode() == previous.get(i).getMode()) {
+                    remap[i] = j;
+                    break;
+                }
+            }
+        }
+        IRCChannel[] channels = this.trackedChannels.values().toArray(new IRCChannel[0]);
+        changeAll(channels, () -> {
+            switchModes.run();
+            for (IRCChannel channel : channels) {
+                channel.members.updateAll(bits -> {
+                    int newBits = 0;
+                    for (int i = 0; i < remap.length; i++) {
+                        if (((bits & (1 << i)) != 0) && (remap[i] >= 0)) {
+                            newBits |= 1 << remap[i];
+                        }
+                    }
+                    return newBits;
+                });
+            }
+        });
+    }
+
+    /**
+     * Makes a change holding the locks of all the given channels, such as
+     * to state shared by their members, retiring their snapshots first.
+     * Only the input processor holds more than one channel's lock at once.
+     *
+     * @param channels channels affected
+     * @param change change to make
+     */
+    private static void changeAll(@Nonnull IRCChannel[] channels, @Nonnull Runnable change) {
+        changeAll(channels, 0, change);
+    }
+
+    private static void changeAll(@Nonnull IRCChannel[] channels, int index, @Nonnull Runnable change) {
+        if (index == channels.length) {
+            change.run();
+        } else {
+            channels[index].change(() -> changeAll(channels, index + 1, change));
+        }
+    }
+
+    @Nonnull
+    private CIKey keyOf(@Nonnull TrackedNick trackedNick) {
+        return trackedNick.key(this.client.getServerInfoSnapshot().getCaseMapping());
+    }
+
+    // Wraps around to positive ids, 0 marking free slots in member tables
+    private int newId() {
+        int id;
+        do {
+            id = this.nextId.incrementAndGet() & Integer.MAX_VALUE;
+        } while ((id == 0) || this.trackedIds.containsKey(id));
+        return id;
+    }
+
+    // Called holding the channel's lock
+    @Nonnull
+    private TrackedNick trackMember(@Nonnull String nick, @Nonnull IRCChannel channel, @Nullable IRCUser user) {
+        TrackedNick existing = this.trackedNicks.get(nick);
+        if (existing == null) {
+            existing = new TrackedNick(this.newId(), nick);
+            this.trackedNicks.putByKey(this.keyOf(existing), existing);
+            this.trackedIds.put(existing.id, existing);
+        }
+        final TrackedNick trackedNick = existing;
+        boolean joined = !trackedNick.isIn(channel);
+        if (joined || ((user != null) && (user != trackedNick.user))) {
+            // Snapshots of the user's other channels show the user too
+            changeAll(trackedNick.channels, () -> {
+                if (user != null) {
+                    trackedNick.setNick(user.getNick());
+                    trackedNick.user = user;
+                }
+                if (joined) {
+                    IRCChannel[] channels = Arrays.copyOf(trackedNick.channels, trackedNick.channels.length + 1);
+                    channels[channels.length - 1] = channel;
+                    trackedNick.setChannels(channels);
+                }
+            });
+        }
+        return trackedNick;
+    }
+
+    // Called holding the channel's lock
+    private void untrackMember(@Nonnull TrackedNick trackedNick, @Nonnull IRCChannel channel) {
+        if (trackedNick.isIn(channel)) {
+            changeAll(trackedNick.channels, () -> {
+                IRCChannel[] channels = Arrays.stream(trackedNick.channels).filter(in -> in != channel).toArray(IRCChannel[]::new);
+                if (channels.length == 0) {
+                    this.trackedNicks.removeByKey(this.keyOf(trackedNick));
+                    this.trackedIds.remove(trackedNick.id);
+                }
+                trackedNick.setChannels(channels);
+            });
+        }
+    }
+
+    private int toModeBit(@Nonnull ChannelUserMode mode) {
+        int index = this.client.getServerInfoSnapshot().getChannelUserModeIndex(mode.getMode());
+        return ((index < 0) || (index >= Integer.SIZE)) ? 0 : (1 << index);
+    }
+
+    private int toModeBits(@Nullable Set<ChannelUserMode> modes) {
+        int bits = 0;
+        if (modes != null) {
+            for (ChannelUserMode mode : modes) {
+                bits |= this.toModeBit(mode);
+            }
+        }
+        return bits;
+    }
+
+    @Nonnull
+    private static Set<ChannelUserMode> toModes(int bits, @Nonnull List<ChannelUserMode> prefixes) {
+        if (bits == 0) {
+            return Collections.emptySet();
+        }
+        Set<ChannelUserMode> modes = new HashSet<>();
+        for (int i = 0; (i < prefixes.size()) && (i < Integer.SIZE); i++) {
+            if ((bits & (1 << i)) != 0) {
+                modes.add(prefixes.get(i));
+            }
+        }
+        return Collections.unmodifiableSet(modes);
+    }
+
+    private void evictActor(@Nonnull IRCUser user) {
+        synchronized (this.actorCache) {
+            // Any mask for this nick, however the server cased it
+            Set<String> names = this.actorCacheNicks.remove(this.foldNick(user));
+            if (names != null) {
+                names.forEach(this.actorCache::remove);
+            }
+        }
+    }
+
+    @Nonnull
+    private String foldNick(@Nonnull IRCUser user) {
+        return this.client.getServerInfoSnapshot().getCaseMapping().toLowerCase(user.getNick());
+    }
+
+    // Called holding the actor cache's lock
+    private void unindexActor(@Nonnull String name, @Nonnull IRCActor actor) {
+        if (actor instanceof IRCUser) {
+            String nick = this.foldNick((IRCUser) actor);
+            Set<String> names = this.actorCacheNicks.get(nick);
+            if ((names != null) && names.remove(name) && names.isEmpty()) {
+                this.actorCacheNicks.remove(nick);
+            }
+        }
+    }
+
+    @Nullable
+    private IRCUser parseUser(@Nonnull String name) {
+        int bang = name.indexOf('!');
+        int at = name.indexOf('@');
+        if ((bang < 1) || (at < (bang + 2)) || (at == (name.length() - 1)) || (name.indexOf('!', bang + 1) != -1) || (name.indexOf('@', at + 1) != -1)) {
+            return null;
+        }
+        return new IRCUser(name, name.substring(0, bang), name.substring(bang + 1, at), name.substring(at + 1), this.client);
     }
 }
\ No newline at end of file
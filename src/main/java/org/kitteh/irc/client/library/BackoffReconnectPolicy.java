@@ -0,0 +1,85 @@
+/*
+ * * Copyright (C) 2013-2015 Matt Baxter http://kitteh.org
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kitteh.irc.client.library;
+
+import org.kitteh.irc.client.library.util.Sanity;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Backoff between reconnect attempts, bounded by a maximum delay and
+ * optionally a maximum number of attempts.
+ * <p>
+ * Without jitter, the delay doubles with each attempt. With jitter, each
+ * delay is picked at random between the base delay and three times the
+ * previous delay ("decorrelated jitter"), which keeps growing the delay
+ * while spreading out many clients that lost their connection together.
+ * <p>
+ * A base delay equal to the maximum waits the same time before every
+ * attempt, which is the client's default of five seconds.
+ */
+public final class BackoffReconnectPolicy implements ReconnectPolicy {
+    private final long baseDelay;
+    private final boolean jitter;
+    private final int maxAttempts;
+    private final long maxDelay;
+
+    /**
+     * Creates a backoff policy.
+     *
+     * @param baseDelay milliseconds to wait before the first attempt
+     * @param maxDelay maximum milliseconds to wait before any attempt
+     * @param maxAttempts attempts before giving up, or 0 to never give up
+     * @param jitter true to randomize delays
+     * @throws IllegalArgumentException if base delay is less than 1,
+     * maximum delay is less than the base delay or maximum attempts is
+     * negative
+     */
+    public BackoffReconnectPolicy(long baseDelay, long maxDelay, int maxAttempts, boolean jitter) {
+        Sanity.truthiness(baseDelay > 0, "Base delay must be at least 1");
+        Sanity.truthiness(maxDelay >= baseDelay, "Maximum delay cannot be less than base delay");
+        Sanity.truthiness(maxAttempts >= 0, "Maximum attempts cannot be negative");
+        this.baseDelay = baseDelay;
+        this.jitter = jitter;
+        this.maxAttempts = maxAttempts;
+        this.maxDelay = maxDelay;
+    }
+
+    @Override
+    public long getDelay(int attempt, long previousDelay) {
+        if ((this.maxAttempts > 0) && (attempt > this.maxAttempts)) {
+            return -1;
+        }
+        if (this.jitter) {
+            // Compare before multiplying or adding so large maximums can't overflow
+            long upper = (previousDelay >= (this.maxDelay / 3)) ? this.maxDelay : Math.max(this.baseDelay, previousDelay * 3);
+            return ThreadLocalRandom.current().nextLong(this.baseDelay - 1, upper) + 1;
+        }
+        int doublings = attempt - 1;
+        if (doublings >= Long.numberOfLeadingZeros(this.baseDelay) - 1) {
+            return this.maxDelay; // Would overflow, certainly past the maximum
+        }
+        return Math.min(this.maxDelay, this.baseDelay << doublings);
+    }
+}
\ No newline at end of file
@@ -88,4 +88,54 @@ public enum CaseMapping {
         }
         return new String(arr);
     }
+
+    /**
+     * Converts a given char to lowercase per spec.
+     *
+     * @param c char to be lowercased
+     * @return lowercased char
+     */
+    public char toLowerCase(char c) {
+        return ((c >= 'A') && (c <= this.upperbound)) ? (char) (c + 32) : c;
+    }
+
+    /**
+     * Gets the hash code of a String lowercased per spec, without creating
+     * the lowercased String. Matches the hash code of {@link
+     * #toLowerCase(String)}'s result.
+     *
+     * @param input string to hash
+     * @return hash code of the lowercased string
+     * @throws NullPointerException if input is null
+     */
+    public int lowerCaseHashCode(@Nonnull String input) {
+        int hash = 0;
+        for (int i = 0; i < input.length(); i++) {
+            hash = (31 * hash) + this.toLowerCase(input.charAt(i));
+        }
+        return hash;
+    }
+
+    /**
+     * Gets if two Strings are equal once lowercased per spec, comparing in
+     * place without creating lowercased Strings.
+     *
+     * @param a a string
+     * @param b another string
+     * @return true if equal ignoring case per spec
+     * @throws NullPointerException if either string is null
+     */
+    public boolean areEqualIgnoringCase(@Nonnull String a, @Nonnull String b) {
+        if (a.length() != b.length()) {
+            return false;
+        }
+        for (int i = 0; i < a.length(); i++) {
+            char charA = a.charAt(i);
+            char charB = b.charAt(i);
+            if ((charA != charB) && (this.toLowerCase(charA) != this.toLowerCase(charB))) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
\ No newline at end of file
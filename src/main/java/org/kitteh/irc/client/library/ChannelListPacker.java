@@ -0,0 +1,183 @@
+/*
+ * * Copyright (C) 2013-2015 Matt Baxter http://kitteh.org
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kitteh.irc.client.library;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Packs channels into as few JOIN and PART lines as the server accepts.
+ * <p>
+ * Each line stays within the 510 bytes the server reads before the line
+ * ending and within the TARGMAX limit for the command. CHANLIMIT caps how
+ * many channels of each group of prefixes the client may be in at once,
+ * so channels joined beyond it, counting those already joined, are left
+ * out and reported instead of sent. Channels with keys are listed first, so their
+ * keys line up.
+ */
+final class ChannelListPacker {
+    private static final int MAX_LINE_BYTES = 510;
+
+    private final String command;
+    private final int targetLimit;
+    private final IRCServerInfo serverInfo;
+    @Nullable
+    private final String reason;
+    private final int reasonBytes;
+    private final List<OutboundLine> lines = new ArrayList<>();
+    // Channels of each CHANLIMIT prefix group the client will be in, across all lines
+    private final Map<String, Integer> groupCounts = new HashMap<>();
+    private final StringBuilder channels = new StringBuilder();
+    private final StringBuilder keys = new StringBuilder();
+    private int channelCount;
+    private int lineBytes;
+
+    private ChannelListPacker(@Nonnull String command, @Nullable String reason, @Nonnull IRCServerInfo serverInfo) {
+        this.command = command;
+        Integer targetLimit = serverInfo.getTargetLimits().get(command);
+        this.targetLimit = (targetLimit == null) ? Integer.MAX_VALUE : targetLimit;
+        this.serverInfo = serverInfo;
+        this.reason = reason;
+        this.reasonBytes = (reason == null) ? 0 : (2 + bytes(reason));
+    }
+
+    /**
+     * Packs channels into JOIN lines, leaving out channels beyond the
+     * CHANLIMIT for their prefix's group.
+     *
+     * @param channels channel names mapped to their keys, or to null for
+     * channels without a key
+     * @param joined channels the client is already in
+     * @param serverInfo information about the server
+     * @param overLimit receives channels left out for exceeding CHANLIMIT
+     * @return lines to send
+     */
+    @Nonnull
+    static List<OutboundLine> join(@Nonnull Map<String, String> channels, @Nonnull Collection<String> joined, @Nonnull IRCServerInfo serverInfo, @Nonnull Consumer<String> overLimit) {
+        ChannelListPacker packer = new ChannelListPacker("JOIN", null, serverInfo);
+        joined.forEach(channel -> {
+            String group = serverInfo.getChannelLimitGroup(channel.charAt(0));
+            if (group != null) {
+                packer.groupCounts.merge(group, 1, Integer::sum);
+            }
+        });
+        channels.forEach((channel, key) -> {
+            if ((key != null) && !packer.addWithinLimit(channel, key, joined)) {
+                overLimit.accept(channel);
+            }
+        });
+        channels.forEach((channel, key) -> {
+            if ((key == null) && !packer.addWithinLimit(channel, null, joined)) {
+                overLimit.accept(channel);
+            }
+        });
+        return packer.finish();
+    }
+
+    /**
+     * Packs channels into PART lines.
+     *
+     * @param channels channel names
+     * @param reason part reason or null for none
+     * @param serverInfo information about the server
+     * @return lines to send
+     */
+    @Nonnull
+    static List<OutboundLine> part(@Nonnull Collection<String> channels, @Nullable String reason, @Nonnull IRCServerInfo serverInfo) {
+        ChannelListPacker packer = new ChannelListPacker("PART", reason, serverInfo);
+        channels.forEach(channel -> packer.add(channel, null));
+        return packer.finish();
+    }
+
+    private static int bytes(@Nonnull String string) {
+        return OutboundLine.getEncodedLength(string);
+    }
+
+    /**
+     * Adds a channel to join, unless it is already joined or would exceed
+     * the CHANLIMIT for its prefix's group.
+     *
+     * @return false if left out for exceeding CHANLIMIT
+     */
+    private boolean addWithinLimit(@Nonnull String channel, @Nullable String key, @Nonnull Collection<String> joined) {
+        if (joined.contains(channel)) {
+            this.add(channel, key); // Already counted
+            return true;
+        }
+        char prefix = channel.charAt(0);
+        String group = this.serverInfo.getChannelLimitGroup(prefix);
+        if (group != null) {
+            int groupCount = this.groupCounts.getOrDefault(group, 0);
+            if (groupCount >= this.serverInfo.getChannelLimits().get(prefix)) {
+                return false;
+            }
+            this.groupCounts.put(group, groupCount + 1);
+        }
+        this.add(channel, key);
+        return true;
+    }
+
+    private void add(@Nonnull String channel, @Nullable String key) {
+        int channelBytes = bytes(channel) + ((this.channelCount == 0) ? 0 : 1);
+        int keyBytes = (key == null) ? 0 : (bytes(key) + ((this.keys.length() == 0) ? 2 : 1));
+        if ((this.channelCount > 0) && ((this.channelCount >= this.targetLimit) || ((this.lineBytes + channelBytes + keyBytes) > MAX_LINE_BYTES))) {
+            this.flush();
+            channelBytes = bytes(channel);
+            keyBytes = (key == null) ? 0 : (bytes(key) + 2);
+        }
+        if (this.channelCount > 0) {
+            this.channels.append(',');
+        } else {
+            this.lineBytes = this.command.length() + 1 + this.reasonBytes;
+        }
+        this.channels.append(channel);
+        if (key != null) {
+            this.keys.append((this.keys.length() == 0) ? "" : ",").append(key);
+        }
+        this.lineBytes += channelBytes + keyBytes;
+        this.channelCount++;
+    }
+
+    private void flush() {
+        String payload = (this.keys.length() == 0) ? this.reason : this.keys.toString();
+        this.lines.add(new OutboundLine(this.command, this.channels.toString(), payload, MessagePriority.CONTROL));
+        this.channels.setLength(0);
+        this.keys.setLength(0);
+        this.channelCount = 0;
+    }
+
+    @Nonnull
+    private List<OutboundLine> finish() {
+        if (this.channelCount > 0) {
+            this.flush();
+        }
+        return this.lines;
+    }
+}
\ No newline at end of file
@@ -30,6 +30,7 @@ import org.kitteh.irc.client.library.event.user.PrivateCTCPQueryEvent;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.Map;
 import java.util.Set;
 import java.util.function.Consumer;
 
@@ -57,6 +58,31 @@ public interface Client {
      */
     void addChannel(@Nonnull Channel... channel);
 
+    /**
+     * Adds a key-protected channel to this client.
+     * <p>
+     * Joins the channel if already connected. The key is remembered for
+     * rejoining the channel.
+     *
+     * @param channel channel to add
+     * @param key channel key
+     * @throws IllegalArgumentException if null or if the key contains
+     * spaces or commas
+     */
+    void addKeyProtectedChannel(@Nonnull String channel, @Nonnull String key);
+
+    /**
+     * Adds key-protected channels to this client.
+     * <p>
+     * Joins the channels if already connected. The keys are remembered for
+     * rejoining the channels.
+     *
+     * @param channelsAndKeys channels mapped to their keys
+     * @throws IllegalArgumentException if null or if a key contains
+     * spaces or commas
+     */
+    void addKeyProtectedChannels(@Nonnull Map<String, String> channelsAndKeys);
+
     /**
      * Gets the named channel.
      *
@@ -153,6 +179,15 @@ public interface Client {
      */
     void removeChannel(@Nonnull Channel channel, @Nullable String reason);
 
+    /**
+     * Removes channels from the client, leaving as necessary.
+     *
+     * @param reason part reason or null to not send a reason
+     * @param channels channels to leave
+     * @throws IllegalArgumentException if channels are null
+     */
+    void removeChannels(@Nullable String reason, @Nonnull String... channels);
+
     /**
      * Sends a CTCP message to a target user or channel. Automagically adds
      * the CTCP delimiter around the message and escapes the characters that
@@ -199,6 +234,26 @@ public interface Client {
      */
     void sendMessage(@Nonnull MessageReceiver target, @Nonnull String message);
 
+    /**
+     * Sends a message to a target user or channel.
+     *
+     * @param target the destination of the message
+     * @param message the message to send
+     * @param priority priority of the message while queued
+     * @throws IllegalArgumentException for null parameters
+     */
+    void sendMessage(@Nonnull String target, @Nonnull String message, @Nonnull MessagePriority priority);
+
+    /**
+     * Sends a message to a target user or channel.
+     *
+     * @param target the destination of the message
+     * @param message the message to send
+     * @param priority priority of the message while queued
+     * @throws IllegalArgumentException for null parameters
+     */
+    void sendMessage(@Nonnull MessageReceiver target, @Nonnull String message, @Nonnull MessagePriority priority);
+
     /**
      * Sends a notice to a target user or channel.
      *
@@ -217,6 +272,26 @@ public interface Client {
      */
     void sendNotice(@Nonnull MessageReceiver target, @Nonnull String message);
 
+    /**
+     * Sends a notice to a target user or channel.
+     *
+     * @param target the destination of the message
+     * @param message the message to send
+     * @param priority priority of the notice while queued
+     * @throws IllegalArgumentException for null parameters
+     */
+    void sendNotice(@Nonnull String target, @Nonnull String message, @Nonnull MessagePriority priority);
+
+    /**
+     * Sends a notice to a target user or channel.
+     *
+     * @param target the destination of the message
+     * @param message the message to send
+     * @param priority priority of the notice while queued
+     * @throws IllegalArgumentException for null parameters
+     */
+    void sendNotice(@Nonnull MessageReceiver target, @Nonnull String message, @Nonnull MessagePriority priority);
+
     /**
      * Sends a raw IRC message.
      *
@@ -225,6 +300,15 @@ public interface Client {
      */
     void sendRawLine(@Nonnull String message);
 
+    /**
+     * Sends a raw IRC message.
+     *
+     * @param message message to send
+     * @param priority priority of the message while queued
+     * @throws IllegalArgumentException for null parameters
+     */
+    void sendRawLine(@Nonnull String message, @Nonnull MessagePriority priority);
+
     /**
      * Sends a raw IRC message, unless the exact same message is already in
      * the queue of messages not yet sent.
@@ -234,6 +318,16 @@ public interface Client {
      */
     void sendRawLineAvoidingDuplication(@Nonnull String message);
 
+    /**
+     * Sends a raw IRC message, unless the exact same message is already in
+     * the queue of messages not yet sent.
+     *
+     * @param message message to send
+     * @param priority priority of the message while queued
+     * @throws IllegalArgumentException for null parameters
+     */
+    void sendRawLineAvoidingDuplication(@Nonnull String message, @Nonnull MessagePriority priority);
+
     /**
      * Sends a raw IRC message, disregarding message delays and all sanity.
      * Live life on the wild side with this method designed to ensure you
@@ -274,7 +368,8 @@ public interface Client {
     void setInputListener(@Nullable Consumer<String> listener);
 
     /**
-     * Sets the delay between messages sent to the server.
+     * Sets the delay between messages sent to the server. This replaces
+     * any other flood control with sending one message per delay.
      * <p>
      * Default is 1200ms.
      *
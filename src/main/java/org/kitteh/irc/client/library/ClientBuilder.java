@@ -30,7 +30,9 @@ import javax.annotation.Nullable;
 import java.io.File;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * Builds {@link Client}s.
@@ -260,7 +262,9 @@ public final class ClientBuilder implements Cloneable {
     }
 
     /**
-     * Sets the delay between messages being sent to the server
+     * Sets the delay between messages being sent to the server. This is a
+     * simple preset for flood control, sending one message per delay, and
+     * replaces any flood control set via {@link #floodControl(Supplier)}.
      *
      * @param delay the delay in milliseconds
      * @return this builder
@@ -269,6 +273,157 @@ public final class ClientBuilder implements Cloneable {
     public ClientBuilder messageDelay(int delay) {
         Sanity.truthiness(delay > 0, "Delay must be at least 1");
         this.config.set(Config.MESSAGE_DELAY, delay);
+        this.config.set(Config.FLOOD_CONTROL, null);
+        return this;
+    }
+
+    /**
+     * Sets the flood control used to pace queued messages. The supplier is
+     * called once per connection, as flood control tracks state.
+     * <p>
+     * By default, or if set to null, one message is sent per message
+     * delay. See {@link TokenBucketFloodControl} and {@link
+     * PenaltyFloodControl} for available strategies.
+     *
+     * @param supplier supplier of flood control or null for the default
+     * @return this builder
+     * @see #messageDelay(int)
+     */
+    @Nonnull
+    public ClientBuilder floodControl(@Nullable Supplier<FloodControl> supplier) {
+        this.config.set(Config.FLOOD_CONTROL, (supplier == null) ? null : new Config.FloodControlSupplierWrapper(supplier));
+        return this;
+    }
+
+    /**
+     * Limits how many messages may wait in the outbound queue. Messages
+     * sent immediately skip the queue and are never limited, nor is the
+     * client's own {@link MessagePriority#CONTROL} traffic such as JOIN and
+     * WHO.
+     * <p>
+     * By default, the queue is unbounded.
+     *
+     * @param capacity maximum number of messages waiting
+     * @param overflowPolicy what happens to messages sent while full
+     * @return this builder
+     * @throws IllegalArgumentException for capacity less than 1 or null
+     * policy
+     */
+    @Nonnull
+    public ClientBuilder outboundQueueCapacity(int capacity, @Nonnull QueueOverflowPolicy overflowPolicy) {
+        Sanity.truthiness(capacity > 0, "Capacity must be at least 1");
+        Sanity.nullCheck(overflowPolicy, "Overflow policy cannot be null");
+        this.config.set(Config.QUEUE_CAPACITY, capacity);
+        this.config.set(Config.QUEUE_OVERFLOW_POLICY, overflowPolicy);
+        return this;
+    }
+
+    /**
+     * Sets the number of messages waiting in the outbound queue at which a
+     * {@link org.kitteh.irc.client.library.event.client.ClientQueueHighWatermarkEvent}
+     * fires, letting senders back off before messages run late.
+     * <p>
+     * By default, or if set to 0, no event fires.
+     *
+     * @param highWatermark queue size at which to fire, or 0 for never
+     * @return this builder
+     * @throws IllegalArgumentException for a negative watermark
+     */
+    @Nonnull
+    public ClientBuilder outboundQueueHighWatermark(int highWatermark) {
+        Sanity.truthiness(highWatermark >= 0, "High watermark cannot be negative");
+        this.config.set(Config.QUEUE_HIGH_WATERMARK, highWatermark);
+        return this;
+    }
+
+    /**
+     * Sets how long a message may wait in the outbound queue. Messages
+     * still waiting this long after being sent are discarded rather than
+     * sent late.
+     * <p>
+     * By default, or if set to 0, messages never expire.
+     *
+     * @param expiry time in milliseconds, or 0 for never
+     * @return this builder
+     * @throws IllegalArgumentException for a negative expiry
+     */
+    @Nonnull
+    public ClientBuilder outboundQueueExpiry(int expiry) {
+        Sanity.truthiness(expiry >= 0, "Expiry cannot be negative");
+        this.config.set(Config.QUEUE_EXPIRY, expiry);
+        return this;
+    }
+
+    /**
+     * Sets what happens to messages waiting in the outbound queue when the
+     * connection is lost. The queue belongs to the client, so by default
+     * all waiting messages are sent after reconnecting. The client's own
+     * {@link MessagePriority#CONTROL} traffic is never replayed.
+     *
+     * @param replayPolicy replay policy
+     * @return this builder
+     * @throws IllegalArgumentException for null policy
+     * @see #outboundQueueReplayTtl(int)
+     */
+    @Nonnull
+    public ClientBuilder outboundQueueReplay(@Nonnull QueueReplayPolicy replayPolicy) {
+        Sanity.nullCheck(replayPolicy, "Replay policy cannot be null");
+        this.config.set(Config.QUEUE_REPLAY_POLICY, replayPolicy);
+        return this;
+    }
+
+    /**
+     * Sets the age beyond which waiting messages are discarded when the
+     * client starts sending on a new connection, under
+     * {@link QueueReplayPolicy#TTL}.
+     * <p>
+     * By default, this is 60 seconds.
+     *
+     * @param ttl time in milliseconds
+     * @return this builder
+     * @throws IllegalArgumentException for ttl less than 1
+     */
+    @Nonnull
+    public ClientBuilder outboundQueueReplayTtl(int ttl) {
+        Sanity.truthiness(ttl > 0, "TTL must be at least 1");
+        this.config.set(Config.QUEUE_REPLAY_TTL, ttl);
+        return this;
+    }
+
+    /**
+     * Sets how long to wait before reconnecting after losing the
+     * connection, and when to give up.
+     * <p>
+     * By default, the client reconnects every five seconds forever.
+     *
+     * @param reconnectPolicy reconnect policy
+     * @return this builder
+     * @throws IllegalArgumentException for null policy
+     * @see BackoffReconnectPolicy
+     */
+    @Nonnull
+    public ClientBuilder reconnectPolicy(@Nonnull ReconnectPolicy reconnectPolicy) {
+        Sanity.nullCheck(reconnectPolicy, "Reconnect policy cannot be null");
+        this.config.set(Config.RECONNECT_POLICY, reconnectPolicy);
+        return this;
+    }
+
+    /**
+     * Sets the minimum time between reconnect attempts to the server. The
+     * limit is shared by all clients in this JVM reconnecting to the same
+     * server address, so a fleet of clients losing a server together
+     * returns at a pace the server will accept rather than all at once.
+     * <p>
+     * By default, or if set to 0, attempts are not limited.
+     *
+     * @param interval time in milliseconds, or 0 for no limit
+     * @return this builder
+     * @throws IllegalArgumentException for a negative interval
+     */
+    @Nonnull
+    public ClientBuilder connectionAttemptInterval(int interval) {
+        Sanity.truthiness(interval >= 0, "Interval cannot be negative");
+        this.config.set(Config.CONNECT_INTERVAL, interval);
         return this;
     }
 
@@ -372,14 +527,35 @@ public final class ClientBuilder implements Cloneable {
 
     /**
      * Clientmaker, clientmaker, make me a client!
+     * <p>
+     * The client starts connecting in the background and this method
+     * returns without waiting for the connection.
      *
      * @return a client designed to your liking
+     * @see #buildAsync()
      */
     @Nonnull
     public Client build() {
-        this.inetSet(Config.BIND_ADDRESS, this.bindHost, this.bindPort);
-        this.inetSet(Config.SERVER_ADDRESS, this.serverHost, this.serverPort);
-        return new IRCClient(this.config);
+        IRCClient client = this.createClient();
+        client.connect();
+        return client;
+    }
+
+    /**
+     * Clientmaker, clientmaker, make me a client, and tell me when it's
+     * connected!
+     * <p>
+     * If the first connection attempt fails, the future completes
+     * exceptionally while the client carries on reconnecting as its
+     * {@link ReconnectPolicy} allows.
+     *
+     * @return a future completed with the client once connected to the
+     * server and registration is sent
+     */
+    @Nonnull
+    public CompletableFuture<Client> buildAsync() {
+        IRCClient client = this.createClient();
+        return client.connect().thenApply(connected -> client);
     }
 
     /**
@@ -399,6 +575,13 @@ public final class ClientBuilder implements Cloneable {
         }
     }
 
+    @Nonnull
+    private IRCClient createClient() {
+        this.inetSet(Config.BIND_ADDRESS, this.bindHost, this.bindPort);
+        this.inetSet(Config.SERVER_ADDRESS, this.serverHost, this.serverPort);
+        return new IRCClient(this.config);
+    }
+
     private void inetSet(@Nonnull Config.Entry<InetSocketAddress> entry, @Nullable String host, int port) {
         if (host != null) {
             this.config.set(entry, new InetSocketAddress(host, port));
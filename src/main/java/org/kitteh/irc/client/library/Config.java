@@ -31,6 +31,7 @@ import java.net.InetSocketAddress;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * Stores a Client's configured data from the {@link ClientBuilder}.
@@ -98,16 +99,38 @@ final class Config {
         }
     }
 
+    static final class FloodControlSupplierWrapper {
+        private final Supplier<FloodControl> supplier;
+
+        FloodControlSupplierWrapper(@Nonnull Supplier<FloodControl> supplier) {
+            this.supplier = supplier;
+        }
+
+        @Nonnull
+        Supplier<FloodControl> getSupplier() {
+            return this.supplier;
+        }
+    }
+
     static final Entry<String> NAME = new Entry<>("Unnamed", String.class);
     static final Entry<String> AUTH_NAME = new Entry<>(null, String.class);
     static final Entry<String> AUTH_PASS = new Entry<>(null, String.class);
     static final Entry<AuthType> AUTH_TYPE = new Entry<>(null, AuthType.class);
     static final Entry<InetSocketAddress> BIND_ADDRESS = new Entry<>(null, InetSocketAddress.class);
+    static final Entry<Integer> CONNECT_INTERVAL = new Entry<>(0, Integer.class);
+    static final Entry<FloodControlSupplierWrapper> FLOOD_CONTROL = new Entry<>(null, FloodControlSupplierWrapper.class);
     static final Entry<ExceptionConsumerWrapper> LISTENER_EXCEPTION = new Entry<>(null, ExceptionConsumerWrapper.class);
     static final Entry<StringConsumerWrapper> LISTENER_INPUT = new Entry<>(null, StringConsumerWrapper.class);
     static final Entry<StringConsumerWrapper> LISTENER_OUTPUT = new Entry<>(null, StringConsumerWrapper.class);
     static final Entry<Integer> MESSAGE_DELAY = new Entry<>(1200, Integer.class);
     static final Entry<String> NICK = new Entry<>("Kitteh", String.class);
+    static final Entry<Integer> QUEUE_CAPACITY = new Entry<>(Integer.MAX_VALUE, Integer.class);
+    static final Entry<Integer> QUEUE_EXPIRY = new Entry<>(0, Integer.class);
+    static final Entry<Integer> QUEUE_HIGH_WATERMARK = new Entry<>(0, Integer.class);
+    static final Entry<QueueOverflowPolicy> QUEUE_OVERFLOW_POLICY = new Entry<>(QueueOverflowPolicy.REJECT, QueueOverflowPolicy.class);
+    static final Entry<QueueReplayPolicy> QUEUE_REPLAY_POLICY = new Entry<>(QueueReplayPolicy.ALL, QueueReplayPolicy.class);
+    static final Entry<Integer> QUEUE_REPLAY_TTL = new Entry<>(60000, Integer.class);
+    static final Entry<ReconnectPolicy> RECONNECT_POLICY = new Entry<>(new BackoffReconnectPolicy(5000, 5000, 0, false), ReconnectPolicy.class);
     static final Entry<String> REAL_NAME = new Entry<>("Kitteh", String.class);
     static final Entry<InetSocketAddress> SERVER_ADDRESS = new Entry<>(new InetSocketAddress("localhost", 6667), InetSocketAddress.class);
     static final Entry<String> SERVER_PASSWORD = new Entry<>(null, String.class);
@@ -27,15 +27,20 @@ import net.engio.mbassy.bus.SyncMessageBus;
 import net.engio.mbassy.bus.common.Properties;
 import net.engio.mbassy.bus.config.BusConfiguration;
 import net.engio.mbassy.bus.config.Feature;
+import net.engio.mbassy.bus.config.IBusConfiguration;
 import net.engio.mbassy.bus.error.IPublicationErrorHandler;
 import net.engio.mbassy.bus.error.PublicationError;
 import net.engio.mbassy.listener.Handler;
+import net.engio.mbassy.subscription.Subscription;
 import org.kitteh.irc.client.library.exception.KittehEventException;
 import org.kitteh.irc.client.library.util.Sanity;
 
 import javax.annotation.Nonnull;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Processes and registers events for a single {@link Client} instance. This
@@ -49,9 +54,23 @@ public final class EventManager {
         }
     }
 
-    private final SyncMessageBus<Object> bus = new SyncMessageBus<>(new BusConfiguration().addFeature(Feature.SyncPubSub.Default()).setProperty(Properties.Handler.PublicationError, new Exceptional()));
+    private static final class Bus extends SyncMessageBus<Object> {
+        private Bus(@Nonnull IBusConfiguration configuration) {
+            super(configuration);
+        }
+
+        private boolean hasSubscribers(@Nonnull Class<?> eventClass) {
+            // Subscriptions outlive their last listener, so check for one
+            Collection<Subscription> subscriptions = this.getSubscriptionsByMessageType(eventClass);
+            return subscriptions.stream().anyMatch(subscription -> subscription.size() > 0);
+        }
+    }
+
+    private final Bus bus = new Bus(new BusConfiguration().addFeature(Feature.SyncPubSub.Default()).setProperty(Properties.Handler.PublicationError, new Exceptional()));
     private final InternalClient client;
     private final Set<Object> listeners = new HashSet<>();
+    // Whether an event class has listeners, cleared on any registration change
+    private final Map<Class<?>, Boolean> listened = new ConcurrentHashMap<>();
 
     EventManager(@Nonnull InternalClient client) {
         this.client = client;
@@ -78,6 +97,21 @@ public final class EventManager {
         return new HashSet<>(this.listeners);
     }
 
+    /**
+     * Gets if any registered listener would receive an event of the given
+     * class, including through handlers for its supertypes. Results are
+     * cached until listeners are next registered or unregistered, so this
+     * is cheap enough to check before constructing an event.
+     *
+     * @param eventClass event class
+     * @return true if calling such an event may reach a listener
+     * @throws IllegalArgumentException for a null class
+     */
+    public boolean hasListeners(@Nonnull Class<?> eventClass) {
+        Sanity.nullCheck(eventClass, "Event class cannot be null");
+        return this.listened.computeIfAbsent(eventClass, this.bus::hasSubscribers);
+    }
+
     /**
      * Registers annotated with {@link Handler} with sync invocation,
      * provided they have a single parameter. This parameter is the event.
@@ -88,6 +122,7 @@ public final class EventManager {
     public synchronized void registerEventListener(@Nonnull Object listener) {
         this.listeners.add(listener);
         this.bus.subscribe(listener);
+        this.listened.clear();
     }
 
     /**
@@ -99,5 +134,6 @@ public final class EventManager {
     public synchronized void unregisterEventListener(@Nonnull Object listener) {
         this.listeners.remove(listener);
         this.bus.unsubscribe(listener);
+        this.listened.clear();
     }
 }
\ No newline at end of file
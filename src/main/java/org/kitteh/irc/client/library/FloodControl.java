@@ -0,0 +1,73 @@
+/*
+ * * Copyright (C) 2013-2015 Matt Baxter http://kitteh.org
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kitteh.irc.client.library;
+
+/**
+ * Decides when queued messages may be sent to the server, so the client
+ * can send as quickly as the server allows without being disconnected for
+ * flooding.
+ * <p>
+ * Each connection creates its own instance and only calls it from that
+ * connection's thread, so implementations need not be thread-safe.
+ *
+ * @see TokenBucketFloodControl
+ * @see PenaltyFloodControl
+ */
+public interface FloodControl {
+    /**
+     * Attempts to spend the budget for sending a line. If the line may be
+     * sent, the cost is deducted and zero returned. Otherwise, nothing is
+     * deducted and the line will be offered again after the returned delay.
+     *
+     * @param now current time, in milliseconds
+     * @param length length of the line in bytes, including line ending
+     * @return zero if the line may be sent now, otherwise milliseconds to
+     * wait before trying again
+     */
+    long acquire(long now, int length);
+
+    /**
+     * Gets how long until the budget will have fully recovered, if nothing
+     * more is sent. Used to carry the budget over when flood control is
+     * reconfigured.
+     *
+     * @param now current time, in milliseconds
+     * @return milliseconds until fully recovered, or zero if already so
+     */
+    default long getRecoveryMillis(long now) {
+        return 0;
+    }
+
+    /**
+     * Takes over budget already spent, such as by the flood control this
+     * instance replaces, so that reconfiguring grants no extra burst.
+     *
+     * @param now current time, in milliseconds
+     * @param recoveryMillis milliseconds until the spent budget would have
+     * fully recovered
+     */
+    default void spend(long now, long recoveryMillis) {
+        // NOOP
+    }
+}
\ No newline at end of file
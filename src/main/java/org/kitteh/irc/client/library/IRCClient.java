@@ -48,6 +48,8 @@ import org.kitteh.irc.client.library.event.channel.ChannelTargetedNoticeEvent;
 import org.kitteh.irc.client.library.event.channel.ChannelTopicEvent;
 import org.kitteh.irc.client.library.event.channel.ChannelUsersUpdatedEvent;
 import org.kitteh.irc.client.library.event.client.ClientConnectedEvent;
+import org.kitteh.irc.client.library.event.client.ClientQueueHighWatermarkEvent;
+import org.kitteh.irc.client.library.event.client.ClientResynchronizedEvent;
 import org.kitteh.irc.client.library.event.client.NickRejectedEvent;
 import org.kitteh.irc.client.library.event.user.PrivateCTCPQueryEvent;
 import org.kitteh.irc.client.library.event.user.PrivateCTCPReplyEvent;
@@ -55,40 +57,53 @@ import org.kitteh.irc.client.library.event.user.PrivateMessageEvent;
 import org.kitteh.irc.client.library.event.user.PrivateNoticeEvent;
 import org.kitteh.irc.client.library.event.user.UserNickChangeEvent;
 import org.kitteh.irc.client.library.event.user.UserQuitEvent;
+import org.kitteh.irc.client.library.exception.KittehChannelLimitException;
 import org.kitteh.irc.client.library.exception.KittehISupportProcessingFailureException;
+import org.kitteh.irc.client.library.util.CIKeyMap;
 import org.kitteh.irc.client.library.util.CISet;
 import org.kitteh.irc.client.library.util.QueueProcessingThread;
 import org.kitteh.irc.client.library.util.Sanity;
-import org.kitteh.irc.client.library.util.StringUtil;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 final class IRCClient extends InternalClient {
-    private final class InputProcessor extends QueueProcessingThread<String> {
+    // Processes received lines, plus tasks that must run in order with them
+    private final class InputProcessor extends QueueProcessingThread<Object> {
+        private final IRCLine line = new IRCLine();
+
         private InputProcessor() {
             super("Kitteh IRC Client Input Processor (" + IRCClient.this.getName() + ')');
         }
 
         @Override
-        protected void processElement(@Nullable String element) {
+        protected void processElement(@Nullable Object element) {
             try {
-                IRCClient.this.handleLine(element);
+                if (element instanceof Runnable) {
+                    ((Runnable) element).run();
+                } else {
+                    IRCClient.this.handleLine((byte[]) element, this.line);
+                }
             } catch (final Exception thrown) {
                 IRCClient.this.exceptionListener.queue(thrown);
             } catch (final Throwable ignored) {
@@ -103,7 +118,7 @@ final class IRCClient extends InternalClient {
             boolean process(@Nonnull String value, @Nonnull IRCClient client) {
                 CaseMapping caseMapping = CaseMapping.getByName(value);
                 if (caseMapping != null) {
-                    client.serverInfo.setCaseMapping(caseMapping);
+                    client.setServerInfo(client.serverInfo.withCaseMapping(caseMapping));
                     return true;
                 }
                 return false;
@@ -113,7 +128,7 @@ final class IRCClient extends InternalClient {
             @Override
             boolean process(@Nonnull String value, @Nonnull IRCClient client) {
                 try {
-                    client.serverInfo.setChannelLengthLimit(Integer.parseInt(value));
+                    client.setServerInfo(client.serverInfo.withChannelLengthLimit(Integer.parseInt(value)));
                     return true;
                 } catch (NumberFormatException ignored) {
                     return false;
@@ -124,7 +139,7 @@ final class IRCClient extends InternalClient {
             @Override
             boolean process(@Nonnull String value, @Nonnull IRCClient client) {
                 String[] pairs = value.split(",");
-                Map<Character, Integer> limits = new HashMap<>();
+                Map<String, Integer> limits = new HashMap<>();
                 for (String p : pairs) {
                     String[] pair = p.split(":");
                     if (pair.length != 2) {
@@ -136,14 +151,12 @@ final class IRCClient extends InternalClient {
                     } catch (Exception e) {
                         return false;
                     }
-                    for (char prefix : pair[0].toCharArray()) {
-                        limits.put(prefix, limit);
-                    }
+                    limits.put(pair[0], limit); // Shared by the group's prefixes
                 }
                 if (limits.isEmpty()) {
                     return false;
                 }
-                client.serverInfo.setChannelLimits(limits);
+                client.setServerInfo(client.serverInfo.withChannelLimits(limits));
                 return true;
             }
         },
@@ -171,7 +184,7 @@ final class IRCClient extends InternalClient {
                         modesMap.put(mode, type);
                     }
                 }
-                client.serverInfo.setChannelModes(modesMap);
+                client.setServerInfo(client.serverInfo.withChannelModes(modesMap));
                 return true;
             }
         },
@@ -185,14 +198,14 @@ final class IRCClient extends InternalClient {
                 for (char c : value.toCharArray()) {
                     prefixes.add(c);
                 }
-                client.serverInfo.setChannelPrefixes(prefixes);
+                client.setServerInfo(client.serverInfo.withChannelPrefixes(prefixes));
                 return true;
             }
         },
         NETWORK {
             @Override
             boolean process(@Nonnull String value, @Nonnull IRCClient client) {
-                client.serverInfo.setNetworkName(value);
+                client.setServerInfo(client.serverInfo.withNetworkName(value));
                 return true;
             }
         },
@@ -200,7 +213,7 @@ final class IRCClient extends InternalClient {
             @Override
             boolean process(@Nonnull String value, @Nonnull IRCClient client) {
                 try {
-                    client.serverInfo.setNickLengthLimit(Integer.parseInt(value));
+                    client.setServerInfo(client.serverInfo.withNickLengthLimit(Integer.parseInt(value)));
                     return true;
                 } catch (NumberFormatException ignored) {
                     return false;
@@ -223,10 +236,33 @@ final class IRCClient extends InternalClient {
                     for (int index = 0; index < modes.length(); index++) {
                         prefixList.add(new ActorProvider.IRCChannelUserMode(client, modes.charAt(index), display.charAt(index)));
                     }
-                    client.serverInfo.setChannelUserModes(prefixList);
+                    // Members keep their modes as bits in PREFIX order
+                    client.actorProvider.channelUserModesChange(client.serverInfo.getChannelUserModes(), prefixList, () -> client.setServerInfo(client.serverInfo.withChannelUserModes(prefixList)));
                 }
                 return true;
             }
+        },
+        TARGMAX {
+            @Override
+            boolean process(@Nonnull String value, @Nonnull IRCClient client) {
+                Map<String, Integer> limits = new HashMap<>();
+                for (String p : value.split(",")) {
+                    String[] pair = p.split(":", 2);
+                    if (pair.length != 2) {
+                        return false;
+                    }
+                    if (pair[1].isEmpty()) {
+                        continue; // No limit
+                    }
+                    try {
+                        limits.put(pair[0].toUpperCase(), Integer.parseInt(pair[1]));
+                    } catch (NumberFormatException ignored) {
+                        return false;
+                    }
+                }
+                client.setServerInfo(client.serverInfo.withTargetLimits(limits));
+                return true;
+            }
         };
 
         private static final Map<String, ISupport> MAP;
@@ -263,12 +299,18 @@ final class IRCClient extends InternalClient {
         UNKNOWN
     }
 
+    private static final byte[] PING = "PING ".getBytes(StandardCharsets.US_ASCII);
+    private static final long RESYNC_TIMEOUT = 60000;
+
     private final String[] pingPurr = new String[]{"MEOW", "MEOW!", "PURR", "PURRRRRRR"};
     private int pingPurrCount;
 
     private final Config config;
     private final InputProcessor processor;
-    private IRCServerInfo serverInfo = new IRCServerInfo(this);
+    // Replaced, never changed, so readers on other threads see consistent state
+    private volatile IRCServerInfo serverInfo = new IRCServerInfo(this);
+    // Follows the replacements for the current connection
+    private volatile LiveServerInfo liveServerInfo = new LiveServerInfo(this.serverInfo);
 
     private String goalNick;
     private String currentNick;
@@ -276,8 +318,22 @@ final class IRCClient extends InternalClient {
 
     private final Set<String> channels = new CISet(this);
     private final Set<String> channelsIntended = new CISet(this);
+    private final Map<String, String> channelKeys = new CIKeyMap<>(this);
+
+    // Joining and reconnect recovery, only touched by the input processor
+    private boolean registeredBefore;
+    private boolean joinable;
+    private boolean rejoinPending;
+    private boolean resyncing;
+    @Nullable
+    private Set<String> resyncPending;
+    private final List<String> resyncFailed = new ArrayList<>();
+    private long resyncStart;
 
     private NettyManager.ClientConnection connection;
+    private final OutboundQueue outboundQueue;
+    private int reconnectAttempt;
+    private long reconnectDelay;
 
     private final CapabilityManager capabilityManager = new CapabilityManager();
     private final EventManager eventManager = new EventManager(this);
@@ -302,32 +358,60 @@ final class IRCClient extends InternalClient {
         this.outputListener = new Listener<>(name, (outputListenerWrapper == null) ? null : outputListenerWrapper.getConsumer());
 
         this.processor = new InputProcessor();
-        this.connect();
+
+        final int highWatermark = this.config.getNotNull(Config.QUEUE_HIGH_WATERMARK);
+        // Senders may hold locks, so the event fires from the input processor
+        this.outboundQueue = new OutboundQueue(this.config.getNotNull(Config.QUEUE_CAPACITY), this.config.getNotNull(Config.QUEUE_OVERFLOW_POLICY), this.config.getNotNull(Config.QUEUE_EXPIRY), highWatermark,
+                size -> this.processor.queue((Runnable) () -> this.eventManager.callEvent(new ClientQueueHighWatermarkEvent(this, size, highWatermark))));
     }
 
     @Override
     public void addChannel(@Nonnull String... channels) {
         Sanity.nullCheck(channels, "Channels cannot be null");
         Sanity.truthiness(channels.length > 0, "Channels cannot be empty array");
+        Map<String, String> joining = new LinkedHashMap<>();
         for (String channelName : channels) {
-            if (!this.serverInfo.isValidChannel(channelName)) {
-                continue;
+            if (this.serverInfo.isValidChannel(channelName)) {
+                joining.put(channelName, this.channelKeys.get(channelName));
             }
-            this.channelsIntended.add(channelName);
-            this.sendRawLine("JOIN :" + channelName);
         }
+        this.joinChannels(joining);
     }
 
     @Override
     public void addChannel(@Nonnull Channel... channels) {
         Sanity.nullCheck(channels, "Channels cannot be null");
         Sanity.truthiness(channels.length > 0, "Channels cannot be empty array");
+        Map<String, String> joining = new LinkedHashMap<>();
         for (Channel channel : channels) {
             if (channel.getClient().equals(this) && (channel instanceof ActorProvider.IRCChannel)) {
-                this.channelsIntended.add(channel.getName());
-                this.sendRawLine("JOIN :" + channel.getName());
+                joining.put(channel.getName(), this.channelKeys.get(channel.getName()));
             }
         }
+        this.joinChannels(joining);
+    }
+
+    @Override
+    public void addKeyProtectedChannel(@Nonnull String channel, @Nonnull String key) {
+        Sanity.nullCheck(channel, "Channel cannot be null");
+        this.addKeyProtectedChannels(Collections.singletonMap(channel, key));
+    }
+
+    @Override
+    public void addKeyProtectedChannels(@Nonnull Map<String, String> channelsAndKeys) {
+        Sanity.nullCheck(channelsAndKeys, "Channels cannot be null");
+        Map<String, String> joining = new LinkedHashMap<>();
+        channelsAndKeys.forEach((channelName, key) -> {
+            Sanity.nullCheck(channelName, "Channel cannot be null");
+            Sanity.nullCheck(key, "Key cannot be null");
+            Sanity.safeMessageCheck(key, "key");
+            Sanity.truthiness((key.indexOf(' ') == -1) && (key.indexOf(',') == -1), "Key cannot have spaces or commas");
+            if (this.serverInfo.isValidChannel(channelName)) {
+                joining.put(channelName, key);
+            }
+        });
+        joining.forEach(this.channelKeys::put);
+        this.joinChannels(joining);
     }
 
     @Override
@@ -375,10 +459,21 @@ final class IRCClient extends InternalClient {
 
     @Nonnull
     @Override
-    public IRCServerInfo getServerInfo() {
+    public ServerInfo getServerInfo() {
+        return this.liveServerInfo;
+    }
+
+    @Nonnull
+    @Override
+    IRCServerInfo getServerInfoSnapshot() {
         return this.serverInfo;
     }
 
+    private void setServerInfo(@Nonnull IRCServerInfo serverInfo) {
+        this.serverInfo = serverInfo;
+        this.liveServerInfo.set(serverInfo);
+    }
+
     @Override
     public void removeChannel(@Nonnull String channelName, @Nullable String reason) {
         Sanity.nullCheck(channelName, "Channel cannot be null");
@@ -391,14 +486,144 @@ final class IRCClient extends InternalClient {
     @Override
     public void removeChannel(@Nonnull Channel channel, @Nullable String reason) {
         Sanity.nullCheck(channel, "Channel cannot be null");
+        this.removeChannels(reason, channel.getName());
+    }
+
+    @Override
+    public void removeChannels(@Nullable String reason, @Nonnull String... channels) {
+        Sanity.nullCheck(channels, "Channels cannot be null");
         if (reason != null) {
             Sanity.safeMessageCheck(reason, "part reason");
         }
-        String channelName = channel.getName();
+        List<String> parting = new ArrayList<>();
+        for (String channelName : channels) {
+            Sanity.nullCheck(channelName, "Channel cannot be null");
+            this.channelsIntended.remove(channelName);
+            this.channelKeys.remove(channelName);
+            if (this.channels.contains(channelName)) {
+                parting.add(channelName);
+            }
+        }
+        this.sendLines(ChannelListPacker.part(parting, reason, this.serverInfo));
+    }
+
+    /**
+     * Marks channels as intended, then joins them with as few lines as
+     * possible if registered. Until then, joining waits for {@link
+     * #rejoinChannels()}, as lines queued earlier would not survive a failed
+     * connection attempt.
+     *
+     * @param channels channels mapped to keys or to null for no key
+     */
+    private void joinChannels(@Nonnull Map<String, String> channels) {
+        this.channelsIntended.addAll(channels.keySet());
+        this.processor.queue((Runnable) () -> {
+            if (!this.joinable || !this.connection.isSending()) {
+                return;
+            }
+            Map<String, String> joining = new LinkedHashMap<>();
+            channels.forEach((channelName, key) -> {
+                if (this.channelsIntended.contains(channelName)) { // Unless removed meanwhile
+                    joining.put(channelName, key);
+                }
+            });
+            this.sendLines(ChannelListPacker.join(joining, this.channels, this.serverInfo, this::channelOverLimit));
+        });
+    }
+
+    // Channels over the server's channel limit are reported to the exception listener
+    private void channelOverLimit(@Nonnull String channelName) {
         this.channelsIntended.remove(channelName);
-        if (this.channels.contains(channel.getName())) {
-            this.sendRawLine("PART " + channelName + (reason == null ? "" : " :" + reason));
+        this.exceptionListener.queue(new KittehChannelLimitException(channelName));
+    }
+
+    /**
+     * Joins every intended channel once registered, with as few lines as
+     * possible. After reconnecting, also starts waiting for each channel's
+     * user list.
+     */
+    private void rejoinChannels() {
+        this.joinable = true;
+        Map<String, String> rejoining = new LinkedHashMap<>();
+        this.channelsIntended.forEach(channelName -> rejoining.put(channelName, this.channelKeys.get(channelName)));
+        if (!this.resyncing) {
+            this.sendLines(ChannelListPacker.join(rejoining, this.channels, this.serverInfo, this::channelOverLimit));
+            return;
+        }
+        this.resyncPending = new CISet(this);
+        this.resyncPending.addAll(rejoining.keySet());
+        this.resyncFailed.clear();
+        // Channels over the limit stay intended, in case it is raised
+        this.sendLines(ChannelListPacker.join(rejoining, this.channels, this.serverInfo, channelName -> this.resyncChannel(channelName, true)));
+        this.resyncChannel(null, false);
+        final Set<String> pending = this.resyncPending;
+        if (pending != null) {
+            // Channels without any reply count as failed after a while, rather than holding up the event
+            this.connection.schedule(() -> this.processor.queue((Runnable) () -> {
+                if (this.resyncPending == pending) {
+                    this.resyncFailed.addAll(pending);
+                    pending.clear();
+                    this.resyncChannel(null, false);
+                }
+            }), RESYNC_TIMEOUT);
+        }
+    }
+
+    /**
+     * Marks a channel as back in sync, or as failed, firing the
+     * resynchronized event once every rejoined channel is done.
+     *
+     * @param channelName channel done or null to just check for completion
+     * @param failed true if the channel could not be rejoined
+     */
+    private void resyncChannel(@Nullable String channelName, boolean failed) {
+        if (this.resyncPending == null) {
+            return;
+        }
+        if ((channelName != null) && this.resyncPending.remove(channelName) && failed) {
+            this.resyncFailed.add(channelName);
+        }
+        if (this.resyncPending.isEmpty()) {
+            this.resyncPending = null;
+            this.callEvent(ClientResynchronizedEvent.class, () -> new ClientResynchronizedEvent(this, System.currentTimeMillis() - this.resyncStart, this.resyncFailed));
+        }
+    }
+
+    /**
+     * Calls an event, only building it if anything listens for it.
+     *
+     * @param eventClass class of the event
+     * @param event builds the event
+     * @param <T> type of event
+     * @return the event called, or null if nothing listens for it
+     */
+    @Nullable
+    private <T> T callEvent(@Nonnull Class<T> eventClass, @Nonnull Supplier<T> event) {
+        if (!this.eventManager.hasListeners(eventClass)) {
+            return null;
         }
+        T built = event.get();
+        this.eventManager.callEvent(built);
+        return built;
+    }
+
+    /**
+     * Calls an event about a channel, only snapshotting the channel if
+     * anything listens for it. Activity in a channel still missing its
+     * member list asks for it again either way.
+     *
+     * @param channel channel of the event
+     * @param eventClass class of the event
+     * @param event builds the event from a snapshot of the channel
+     * @param <T> type of event
+     */
+    private <T> void callEvent(@Nonnull ActorProvider.IRCChannel channel, @Nonnull Class<T> eventClass, @Nonnull Function<ActorProvider.IRCChannelSnapshot, T> event) {
+        channel.requestFullList();
+        this.callEvent(eventClass, () -> event.apply(channel.snapshot()));
+    }
+
+    private void sendLines(@Nonnull List<OutboundLine> lines) {
+        lines.forEach(line -> this.connection.sendMessage(line, false));
     }
 
     @Override
@@ -408,7 +633,7 @@ final class IRCClient extends InternalClient {
         Sanity.nullCheck(message, "Message cannot be null");
         Sanity.safeMessageCheck(message);
         Sanity.truthiness(target.indexOf(' ') == -1, "Target cannot have spaces");
-        this.sendRawLine("PRIVMSG " + target + " :" + CTCPUtil.toCTCP(message));
+        this.connection.sendMessage(new OutboundLine("PRIVMSG", target, CTCPUtil.toCTCP(message)), false);
     }
 
     @Override
@@ -419,55 +644,89 @@ final class IRCClient extends InternalClient {
 
     @Override
     public void sendMessage(@Nonnull String target, @Nonnull String message) {
+        this.sendMessage(target, message, MessagePriority.INTERACTIVE);
+    }
+
+    @Override
+    public void sendMessage(@Nonnull MessageReceiver target, @Nonnull String message) {
+        this.sendMessage(target, message, MessagePriority.INTERACTIVE);
+    }
+
+    @Override
+    public void sendMessage(@Nonnull String target, @Nonnull String message, @Nonnull MessagePriority priority) {
         Sanity.nullCheck(target, "Target cannot be null");
         Sanity.safeMessageCheck(message, "target");
         Sanity.nullCheck(message, "Message cannot be null");
         Sanity.safeMessageCheck(message);
         Sanity.truthiness(target.indexOf(' ') == -1, "Target cannot have spaces");
-        this.sendRawLine("PRIVMSG " + target + " :" + message);
+        Sanity.nullCheck(priority, "Priority cannot be null");
+        this.connection.sendMessage(new OutboundLine("PRIVMSG", target, message, priority), false);
     }
 
     @Override
-    public void sendMessage(@Nonnull MessageReceiver target, @Nonnull String message) {
+    public void sendMessage(@Nonnull MessageReceiver target, @Nonnull String message, @Nonnull MessagePriority priority) {
         Sanity.nullCheck(target, "Target cannot be null");
-        this.sendMessage(target.getMessagingName(), message);
+        this.sendMessage(target.getMessagingName(), message, priority);
     }
 
     @Override
     public void sendNotice(@Nonnull String target, @Nonnull String message) {
+        this.sendNotice(target, message, MessagePriority.INTERACTIVE);
+    }
+
+    @Override
+    public void sendNotice(@Nonnull MessageReceiver target, @Nonnull String message) {
+        this.sendNotice(target, message, MessagePriority.INTERACTIVE);
+    }
+
+    @Override
+    public void sendNotice(@Nonnull String target, @Nonnull String message, @Nonnull MessagePriority priority) {
         Sanity.nullCheck(target, "Target cannot be null");
         Sanity.safeMessageCheck(message, "target");
         Sanity.nullCheck(message, "Message cannot be null");
         Sanity.safeMessageCheck(message);
         Sanity.truthiness(target.indexOf(' ') == -1, "Target cannot have spaces");
-        this.sendRawLine("NOTICE " + target + " :" + message);
+        Sanity.nullCheck(priority, "Priority cannot be null");
+        this.connection.sendMessage(new OutboundLine("NOTICE", target, message, priority), false);
     }
 
     @Override
-    public void sendNotice(@Nonnull MessageReceiver target, @Nonnull String message) {
+    public void sendNotice(@Nonnull MessageReceiver target, @Nonnull String message, @Nonnull MessagePriority priority) {
         Sanity.nullCheck(target, "Target cannot be null");
-        this.sendNotice(target.getMessagingName(), message);
+        this.sendNotice(target.getMessagingName(), message, priority);
     }
 
     @Override
     public void sendRawLine(@Nonnull String message) {
+        this.sendRawLine(message, MessagePriority.INTERACTIVE);
+    }
+
+    @Override
+    public void sendRawLine(@Nonnull String message, @Nonnull MessagePriority priority) {
         Sanity.nullCheck(message, "Message cannot be null");
         Sanity.safeMessageCheck(message);
-        this.connection.sendMessage(message, false);
+        Sanity.nullCheck(priority, "Priority cannot be null");
+        this.connection.sendMessage(new OutboundLine(message, priority), false);
     }
 
     @Override
     public void sendRawLineAvoidingDuplication(@Nonnull String message) {
+        this.sendRawLineAvoidingDuplication(message, MessagePriority.INTERACTIVE);
+    }
+
+    @Override
+    public void sendRawLineAvoidingDuplication(@Nonnull String message, @Nonnull MessagePriority priority) {
         Sanity.nullCheck(message, "Message cannot be null");
         Sanity.safeMessageCheck(message);
-        this.connection.sendMessage(message, false, true);
+        Sanity.nullCheck(priority, "Priority cannot be null");
+        this.connection.sendMessage(new OutboundLine(message, priority), false, true);
     }
 
     @Override
     public void sendRawLineImmediately(@Nonnull String message) {
         Sanity.nullCheck(message, "Message cannot be null");
         Sanity.safeMessageCheck(message);
-        this.connection.sendMessage(message, true);
+        this.connection.sendMessage(new OutboundLine(message), true);
     }
 
     @Override
@@ -496,6 +755,7 @@ final class IRCClient extends InternalClient {
     public void setMessageDelay(int delay) {
         Sanity.truthiness(delay > 0, "Delay must be at least 1");
         this.config.set(Config.MESSAGE_DELAY, delay);
+        this.config.set(Config.FLOOD_CONTROL, null);
         if (this.connection != null) {
             this.connection.updateScheduling();
         }
@@ -529,18 +789,18 @@ final class IRCClient extends InternalClient {
         this.outputListener.shutdown();
     }
 
-    /**
-     * Queue up a line for processing.
-     *
-     * @param line line to be processed
-     */
     @Override
-    void processLine(@Nonnull String line) {
-        if (line.startsWith("PING ")) {
-            this.sendRawLineImmediately("PONG " + line.substring(5));
-        } else {
-            this.processor.queue(line);
+    boolean processPing(@Nonnull byte[] line) {
+        if (this.isPing(line)) {
+            this.sendRawLineImmediately("PONG " + new String(line, PING.length, line.length - PING.length, StandardCharsets.UTF_8));
+            return true;
         }
+        return false;
+    }
+
+    @Override
+    void processLines(@Nonnull Collection<byte[]> lines) {
+        this.processor.queueAll(lines);
     }
 
     @Nonnull
@@ -567,6 +827,12 @@ final class IRCClient extends InternalClient {
         return this.outputListener;
     }
 
+    @Nonnull
+    @Override
+    OutboundQueue getOutboundQueue() {
+        return this.outboundQueue;
+    }
+
     @Override
     void authenticate() {
         AuthType authType = this.config.get(Config.AUTH_TYPE);
@@ -593,10 +859,14 @@ final class IRCClient extends InternalClient {
         }
     }
 
+    @Nonnull
     @Override
-    void connect() {
+    CompletableFuture<Void> connect() {
         this.connection = NettyManager.connect(this);
+        return this.connection.getConnected().thenRun(this::register);
+    }
 
+    private void register() {
         this.sendRawLineImmediately("CAP LS");
 
         // If we have WebIRC information, send it before PASS, USER, and NICK.
@@ -615,68 +885,40 @@ final class IRCClient extends InternalClient {
     }
 
     @Override
-    void ping() {
-        this.sendRawLine("PING :" + this.pingPurr[this.pingPurrCount++ % this.pingPurr.length]); // Connection's asleep, post cat sounds
+    synchronized long nextReconnectDelay() {
+        long delay = this.config.getNotNull(Config.RECONNECT_POLICY).getDelay(++this.reconnectAttempt, this.reconnectDelay);
+        this.reconnectDelay = Math.max(delay, 0);
+        return delay;
     }
 
-    private String[] handleArgs(@Nonnull String[] split, int start) {
-        final List<String> argsList = new LinkedList<>();
-
-        int index = start;
-        for (; index < split.length; index++) {
-            if (split[index].startsWith(":")) {
-                split[index] = split[index].substring(1);
-                argsList.add(StringUtil.combineSplit(split, index));
-                break;
-            }
-            argsList.add(split[index]);
-        }
-
-        return argsList.toArray(new String[argsList.size()]);
+    @Override
+    void ping() {
+        this.sendRawLine("PING :" + this.pingPurr[this.pingPurrCount++ % this.pingPurr.length], MessagePriority.CONTROL); // Connection's asleep, post cat sounds
     }
 
-    private void handleLine(@Nullable final String line) {
-        if ((line == null) || (line.isEmpty())) {
+    private void handleLine(@Nullable final byte[] line, @Nonnull final IRCLine parsed) {
+        if ((line == null) || (line.length == 0) || !parsed.parse(line)) {
             return;
         }
 
-        final String[] split = line.split(" ");
-
-        int argsIndex = 1;
-
-        final String actorName;
-        if (split[0].startsWith(":")) {
-            argsIndex++;
-            actorName = split[0].substring(1);
-        } else {
-            actorName = "";
-        }
-        final ActorProvider.IRCActor actor = this.actorProvider.getActor(actorName);
-
-        final String commandString = split[argsIndex - 1];
-
-        final String[] args = this.handleArgs(split, argsIndex);
+        final ActorProvider.IRCActor actor = this.actorProvider.getActor(parsed.getPrefix());
 
-        int numeric = -1;
-        try {
-            numeric = Integer.parseInt(commandString);
-        } catch (NumberFormatException ignored) {
-        }
+        final int numeric = parsed.getNumeric();
         if (numeric > -1) {
-            this.handleLineNumeric(actor, numeric, args);
+            this.handleLineNumeric(actor, numeric, parsed);
         } else {
-            Command command = Command.getByName(commandString);
+            Command command = Command.getByName(parsed.getCommand());
             if (command != null) {
-                this.handleLineCommand(actor, command, args);
+                this.handleLineCommand(actor, command, parsed);
             }
         }
     }
 
-    private void handleLineNumeric(@Nonnull final ActorProvider.IRCActor actor, final int command, @Nonnull final String[] args) {
+    private void handleLineNumeric(@Nonnull final ActorProvider.IRCActor actor, final int command, @Nonnull final IRCLine args) {
         switch (command) {
             case 1: // Welcome
                 // Use this to acquire the current nickname
-                this.currentNick = args[0];
+                this.currentNick = args.getArg(0);
                 break;
             case 2: // Your host is...
                 break;
@@ -685,16 +927,30 @@ final class IRCClient extends InternalClient {
             case 4: // version / modes
                 // We're in! Start sending all messages.
                 this.authenticate();
-                this.serverInfo = new IRCServerInfo(this);
-                this.serverInfo.setServerAddress(args[1]);
-                this.serverInfo.setServerVersion(args[2]);
-                this.eventManager.callEvent(new ClientConnectedEvent(this, actor.snapshot(), this.serverInfo));
+                this.serverInfo = new IRCServerInfo(this).withServer(args.getArg(1), args.getArg(2));
+                this.liveServerInfo = new LiveServerInfo(this.serverInfo);
+                this.actorProvider.clearActorCache();
+                synchronized (this) {
+                    this.reconnectAttempt = 0;
+                    this.reconnectDelay = 0;
+                }
+                // Forget any old connection's channels, and join the intended ones after ISUPPORT
+                this.channels.clear();
+                this.actorProvider.channelUntrackAll();
+                this.joinable = false;
+                this.rejoinPending = true;
+                this.resyncing = this.registeredBefore;
+                this.resyncPending = null;
+                this.resyncStart = System.currentTimeMillis();
+                this.registeredBefore = true;
+                this.callEvent(ClientConnectedEvent.class, () -> new ClientConnectedEvent(this, actor.snapshot(), this.liveServerInfo));
                 this.connection.startSending();
                 break;
             case 5: // ISUPPORT
-                for (String arg : args) {
-                    ISupport.handle(arg, this);
+                for (int arg = 0; arg < args.getArgCount(); arg++) {
+                    ISupport.handle(args.getArg(arg), this);
                 }
+                this.actorProvider.clearActorCache(); // Channel types or case mapping may have changed
                 break;
             case 250: // Highest connection count
             case 251: // There are X users
@@ -706,60 +962,57 @@ final class IRCClient extends InternalClient {
             case 266: // global users, max
                 break;
             case 315: // WHO completed
-                ActorProvider.IRCChannel whoChannel = this.actorProvider.getChannel(args[1]);
+                ActorProvider.IRCChannel whoChannel = this.actorProvider.getChannel(args.getArg(1));
                 if (whoChannel != null) {
                     whoChannel.setListReceived();
-                    this.eventManager.callEvent(new ChannelUsersUpdatedEvent(this, whoChannel.snapshot()));
+                    this.callEvent(whoChannel, ChannelUsersUpdatedEvent.class, snapshot -> new ChannelUsersUpdatedEvent(this, snapshot));
                 }
+                this.resyncChannel(args.getArg(1), false);
                 break;
             // Channel info
             case 332: // Channel topic
-                ActorProvider.IRCChannel topicChannel = this.actorProvider.getChannel(args[1]);
+                ActorProvider.IRCChannel topicChannel = this.actorProvider.getChannel(args.getArg(1));
                 if (topicChannel != null) {
-                    topicChannel.setTopic(args[2]);
+                    topicChannel.setTopic(args.getArg(2));
                 }
                 break;
             case 333: // Topic set by
-                ActorProvider.IRCChannel topicSetChannel = this.actorProvider.getChannel(args[1]);
+                ActorProvider.IRCChannel topicSetChannel = this.actorProvider.getChannel(args.getArg(1));
                 if (topicSetChannel != null) {
-                    topicSetChannel.setTopic(Long.parseLong(args[3]) * 1000, this.actorProvider.getActor(args[2]).snapshot());
-                    this.eventManager.callEvent(new ChannelTopicEvent(this, topicSetChannel.snapshot(), false));
+                    topicSetChannel.setTopic(Long.parseLong(args.getArg(3)) * 1000, this.actorProvider.getActor(args.getArg(2)).snapshot());
+                    this.callEvent(topicSetChannel, ChannelTopicEvent.class, snapshot -> new ChannelTopicEvent(this, snapshot, false));
                 }
                 break;
             case 352: // WHO list
-                if (this.serverInfo.isValidChannel(args[1])) {
-                    final String channelName = args[1];
-                    final String ident = args[2];
-                    final String host = args[3];
+                if (this.serverInfo.isValidChannel(args.getArg(1))) {
+                    final String channelName = args.getArg(1);
+                    final String ident = args.getArg(2);
+                    final String host = args.getArg(3);
                     // server is arg 4
-                    final String nick = args[5];
-                    final String status = args[6];
+                    final String nick = args.getArg(5);
+                    final String status = args.getArg(6);
                     // The rest I don't care about
                     final ActorProvider.IRCUser user = (ActorProvider.IRCUser) this.actorProvider.getActor(nick + '!' + ident + '@' + host);
                     final ActorProvider.IRCChannel channel = this.actorProvider.getChannel(channelName);
                     final Set<ChannelUserMode> modes = new HashSet<>();
-                    for (char prefix : status.substring(1).toCharArray()) {
-                        for (ChannelUserMode mode : this.serverInfo.getChannelUserModes()) {
-                            if (mode.getPrefix() == prefix) {
-                                modes.add(mode);
-                                break;
-                            }
+                    for (int i = 1; i < status.length(); i++) {
+                        ChannelUserMode mode = this.serverInfo.getChannelUserModeByPrefix(status.charAt(i));
+                        if (mode != null) {
+                            modes.add(mode);
                         }
                     }
                     channel.trackUser(user, modes);
                 }
                 break;
             case 353: // Channel users list (/names). format is 353 nick = #channel :names
-                if (this.serverInfo.isValidChannel(args[2])) {
-                    ActorProvider.IRCChannel channel = this.actorProvider.getChannel(args[2]);
-                    List<ChannelUserMode> channelUserModes = this.serverInfo.getChannelUserModes();
-                    for (String combo : args[3].split(" ")) {
+                if (this.serverInfo.isValidChannel(args.getArg(2))) {
+                    ActorProvider.IRCChannel channel = this.actorProvider.getChannel(args.getArg(2));
+                    for (String combo : args.getArg(3).split(" ")) {
                         Set<ChannelUserMode> modes = new HashSet<>();
                         for (int i = 0; i < combo.length(); i++) {
-                            char c = combo.charAt(i);
-                            Optional<ChannelUserMode> mode = channelUserModes.stream().filter(m -> m.getPrefix() == c).findFirst();
-                            if (mode.isPresent()) {
-                                modes.add(mode.get());
+                            ChannelUserMode mode = this.serverInfo.getChannelUserModeByPrefix(combo.charAt(i));
+                            if (mode != null) {
+                                modes.add(mode);
                             } else {
                                 channel.trackNick(combo.substring(i), modes);
                                 break;
@@ -769,15 +1022,40 @@ final class IRCClient extends InternalClient {
                 }
                 break;
             case 366: // End of /names
-                if (this.serverInfo.isValidChannel(args[1])) {
-                    ActorProvider.IRCChannel channel = this.actorProvider.getChannel(args[1]);
-                    this.eventManager.callEvent(new ChannelNamesUpdatedEvent(this, channel.snapshot()));
+                if (this.serverInfo.isValidChannel(args.getArg(1))) {
+                    ActorProvider.IRCChannel channel = this.actorProvider.getChannel(args.getArg(1));
+                    this.callEvent(channel, ChannelNamesUpdatedEvent.class, snapshot -> new ChannelNamesUpdatedEvent(this, snapshot));
                 }
                 break;
             case 372: // info, such as continued motd
             case 375: // motd start
+                break;
             case 376: // motd end
             case 422: // MOTD missing
+                // ISUPPORT is all in by now
+                if (this.rejoinPending) {
+                    this.rejoinPending = false;
+                    this.rejoinChannels();
+                }
+                break;
+            // Channel join errors
+            case 403: // No such channel
+            case 405: // Too many channels
+            case 437: // Channel temporarily unavailable
+            case 470: // Forwarded to another channel
+            case 471: // Channel is full
+            case 473: // Invite only
+            case 474: // Banned
+            case 475: // Bad channel key
+            case 476: // Bad channel mask
+            case 477: // Need registered nick
+            case 479: // Illegal channel name
+            case 480: // Cannot join channel
+            case 485: // Not allowed to join
+            case 489: // Secure connection only
+            case 515: // Need registered nick
+            case 520: // Operators only
+                this.resyncChannel(args.getArg(1), true); // Ignored if not a channel being rejoined
                 break;
             // Nick errors, try for new nick below
             case 431: // No nick given
@@ -788,23 +1066,23 @@ final class IRCClient extends InternalClient {
                 this.sendNickChange(nickRejectedEvent.getNewNick());
                 break;
             case 710: // KNOCK KNOCK, WHO'S THERE?
-                ActorProvider.IRCChannel channel = this.actorProvider.getChannel(args[1]);
-                ActorProvider.IRCUser user = (ActorProvider.IRCUser) this.actorProvider.getActor(args[2]);
-                this.eventManager.callEvent(new ChannelKnockEvent(this, channel.snapshot(), user.snapshot()));
+                ActorProvider.IRCChannel channel = this.actorProvider.getChannel(args.getArg(1));
+                ActorProvider.IRCUser user = (ActorProvider.IRCUser) this.actorProvider.getActor(args.getArg(2));
+                this.callEvent(channel, ChannelKnockEvent.class, snapshot -> new ChannelKnockEvent(this, snapshot, user.snapshot()));
                 break;
         }
     }
 
-    private void handleLineCommand(@Nonnull final ActorProvider.IRCActor actor, @Nonnull final Command command, @Nonnull final String[] args) {
+    private void handleLineCommand(@Nonnull final ActorProvider.IRCActor actor, @Nonnull final Command command, @Nonnull final IRCLine args) {
         // CTCP
-        if (((command == Command.NOTICE) || (command == Command.PRIVMSG)) && CTCPUtil.isCTCP(args[1])) {
-            final String ctcpMessage = CTCPUtil.fromCTCP(args[1]);
-            final MessageTarget messageTarget = this.getTypeByTarget(args[0]);
+        if (((command == Command.NOTICE) || (command == Command.PRIVMSG)) && CTCPUtil.isCTCP(args.getArg(1))) {
+            final String ctcpMessage = CTCPUtil.fromCTCP(args.getArg(1));
+            final MessageTarget messageTarget = this.getTypeByTarget(args.getArg(0));
             ActorProvider.IRCUser user = (ActorProvider.IRCUser) actor;
             switch (command) {
                 case NOTICE:
                     if (messageTarget == MessageTarget.PRIVATE) {
-                        this.eventManager.callEvent(new PrivateCTCPReplyEvent(this, user.snapshot(), ctcpMessage));
+                        this.callEvent(PrivateCTCPReplyEvent.class, () -> new PrivateCTCPReplyEvent(this, user.snapshot(), ctcpMessage));
                     }
                     break;
                 case PRIVMSG:
@@ -825,18 +1103,20 @@ final class IRCClient extends InternalClient {
                             if (ctcpMessage.startsWith("PING ")) {
                                 reply = ctcpMessage;
                             }
-                            PrivateCTCPQueryEvent event = new PrivateCTCPQueryEvent(this, user.snapshot(), ctcpMessage, reply);
-                            this.eventManager.callEvent(event);
-                            String eventReply = event.getReply();
-                            if (eventReply != null) {
-                                this.sendRawLine("NOTICE " + user.getNick() + " :" + CTCPUtil.toCTCP(eventReply));
+                            final String defaultReply = reply;
+                            PrivateCTCPQueryEvent queryEvent = this.callEvent(PrivateCTCPQueryEvent.class, () -> new PrivateCTCPQueryEvent(this, user.snapshot(), ctcpMessage, defaultReply));
+                            if (queryEvent != null) {
+                                reply = queryEvent.getReply();
+                            }
+                            if (reply != null) {
+                                this.sendNotice(user.getNick(), CTCPUtil.toCTCP(reply));
                             }
                             break;
                         case CHANNEL:
-                            this.eventManager.callEvent(new ChannelCTCPEvent(this, user.snapshot(), this.actorProvider.getChannel(args[0]).snapshot(), ctcpMessage));
+                            this.callEvent(this.actorProvider.getChannel(args.getArg(0)), ChannelCTCPEvent.class, snapshot -> new ChannelCTCPEvent(this, user.snapshot(), snapshot, ctcpMessage));
                             break;
                         case CHANNEL_TARGETED:
-                            this.eventManager.callEvent(new ChannelTargetedCTCPEvent(this, user.snapshot(), this.actorProvider.getChannel(args[0].substring(1)).snapshot(), this.serverInfo.getTargetedChannelInfo(args[0]), ctcpMessage));
+                            this.callEvent(this.actorProvider.getChannel(args.getArg(0).substring(1)), ChannelTargetedCTCPEvent.class, snapshot -> new ChannelTargetedCTCPEvent(this, user.snapshot(), snapshot, this.serverInfo.getTargetedChannelInfo(args.getArg(0)), ctcpMessage));
                             break;
                     }
                     break;
@@ -846,14 +1126,14 @@ final class IRCClient extends InternalClient {
         switch (command) {
             case CAP:
                 CapabilityNegotiationResponseEventBase event = null;
-                List<CapabilityState> capabilityStateList = Arrays.stream(args[2].split(" ")).map(CapabilityState::new).collect(Collectors.toList());
-                switch (args[1].toLowerCase()) {
+                List<CapabilityState> capabilityStateList = Arrays.stream(args.getArg(2).split(" ")).map(CapabilityState::new).collect(Collectors.toList());
+                switch (args.getArg(1).toLowerCase()) {
                     case "ack":
                         event = new CapabilitiesAcknowledgedEvent(this, this.capabilityManager.isNegotiating(), capabilityStateList);
                         this.eventManager.callEvent(event);
                         break;
                     case "list":
-                        this.eventManager.callEvent(new CapabilitiesListEvent(this, capabilityStateList));
+                        this.callEvent(CapabilitiesListEvent.class, () -> new CapabilitiesListEvent(this, capabilityStateList));
                         break;
                     case "ls":
                         event = new CapabilitiesSupportedListEvent(this, this.capabilityManager.isNegotiating(), capabilityStateList);
@@ -875,38 +1155,36 @@ final class IRCClient extends InternalClient {
                 }
                 break;
             case NOTICE:
-                switch (this.getTypeByTarget(args[0])) {
+                switch (this.getTypeByTarget(args.getArg(0))) {
                     case CHANNEL:
-                        this.eventManager.callEvent(new ChannelNoticeEvent(this, ((ActorProvider.IRCUser) actor).snapshot(), this.actorProvider.getChannel(args[0]).snapshot(), args[1]));
+                        this.callEvent(this.actorProvider.getChannel(args.getArg(0)), ChannelNoticeEvent.class, snapshot -> new ChannelNoticeEvent(this, ((ActorProvider.IRCUser) actor).snapshot(), snapshot, args.getArg(1)));
                         break;
                     case CHANNEL_TARGETED:
-                        this.eventManager.callEvent(new ChannelTargetedNoticeEvent(this, ((ActorProvider.IRCUser) actor).snapshot(), this.actorProvider.getChannel(args[0].substring(1)).snapshot(), this.serverInfo.getTargetedChannelInfo(args[0]), args[1]));
+                        this.callEvent(this.actorProvider.getChannel(args.getArg(0).substring(1)), ChannelTargetedNoticeEvent.class, snapshot -> new ChannelTargetedNoticeEvent(this, ((ActorProvider.IRCUser) actor).snapshot(), snapshot, this.serverInfo.getTargetedChannelInfo(args.getArg(0)), args.getArg(1)));
                         break;
                     case PRIVATE:
-                        this.eventManager.callEvent(new PrivateNoticeEvent(this, ((ActorProvider.IRCUser) actor).snapshot(), args[1]));
+                        this.callEvent(PrivateNoticeEvent.class, () -> new PrivateNoticeEvent(this, ((ActorProvider.IRCUser) actor).snapshot(), args.getArg(1)));
                         break;
                 }
                 break;
             case PRIVMSG:
-                switch (this.getTypeByTarget(args[0])) {
+                switch (this.getTypeByTarget(args.getArg(0))) {
                     case CHANNEL:
-                        this.eventManager.callEvent(new ChannelMessageEvent(this, ((ActorProvider.IRCUser) actor).snapshot(), this.actorProvider.getChannel(args[0]).snapshot(), args[1]));
+                        this.callEvent(this.actorProvider.getChannel(args.getArg(0)), ChannelMessageEvent.class, snapshot -> new ChannelMessageEvent(this, ((ActorProvider.IRCUser) actor).snapshot(), snapshot, args.getArg(1)));
                         break;
                     case CHANNEL_TARGETED:
-                        this.eventManager.callEvent(new ChannelTargetedMessageEvent(this, ((ActorProvider.IRCUser) actor).snapshot(), this.actorProvider.getChannel(args[0].substring(1)).snapshot(), this.serverInfo.getTargetedChannelInfo(args[0]), args[1]));
+                        this.callEvent(this.actorProvider.getChannel(args.getArg(0).substring(1)), ChannelTargetedMessageEvent.class, snapshot -> new ChannelTargetedMessageEvent(this, ((ActorProvider.IRCUser) actor).snapshot(), snapshot, this.serverInfo.getTargetedChannelInfo(args.getArg(0)), args.getArg(1)));
                         break;
                     case PRIVATE:
-                        this.eventManager.callEvent(new PrivateMessageEvent(this, ((ActorProvider.IRCUser) actor).snapshot(), args[1]));
+                        this.callEvent(PrivateMessageEvent.class, () -> new PrivateMessageEvent(this, ((ActorProvider.IRCUser) actor).snapshot(), args.getArg(1)));
                         break;
                 }
                 break;
             case MODE:
-                if (this.getTypeByTarget(args[0]) == MessageTarget.CHANNEL) {
-                    ActorProvider.IRCChannel channel = this.actorProvider.getChannel(args[0]);
-                    List<ChannelUserMode> channelUserModes = this.serverInfo.getChannelUserModes();
-                    Map<Character, ChannelModeType> channelModes = this.serverInfo.getChannelModes();
-                    for (int currentArg = 1; currentArg < args.length; currentArg++) { // Note: currentArg changes outside here too
-                        String changes = args[currentArg];
+                if (this.getTypeByTarget(args.getArg(0)) == MessageTarget.CHANNEL) {
+                    ActorProvider.IRCChannel channel = this.actorProvider.getChannel(args.getArg(0));
+                    for (int currentArg = 1; currentArg < args.getArgCount(); currentArg++) { // Note: currentArg changes outside here too
+                        String changes = args.getArg(currentArg);
                         if (!((changes.charAt(0) == '+') || (changes.charAt(0) == '-'))) {
                             // TODO Inform of failed MODE processing
                             return;
@@ -921,30 +1199,28 @@ final class IRCClient extends InternalClient {
                                     add = false;
                                     break;
                                 default:
-                                    ChannelModeType mode = channelModes.get(modeChar);
+                                    ChannelModeType mode = this.serverInfo.getChannelMode(modeChar);
                                     ChannelUserMode prefixMode = null;
                                     String target = null;
                                     if (mode == null) {
-                                        for (ChannelUserMode prefix : channelUserModes) {
-                                            if (prefix.getMode() == modeChar) {
-                                                target = args[++currentArg];
-                                                if (add) {
-                                                    channel.trackUserModeAdd(target, prefix);
-                                                } else {
-                                                    channel.trackUserModeRemove(target, prefix);
-                                                }
-                                                prefixMode = prefix;
-                                                break;
-                                            }
-                                        }
+                                        prefixMode = this.serverInfo.getChannelUserModeByMode(modeChar);
                                         if (prefixMode == null) {
                                             // TODO Inform of failed MODE processing
                                             return;
                                         }
+                                        target = args.getArg(++currentArg);
+                                        if (add) {
+                                            channel.trackUserModeAdd(target, prefixMode);
+                                        } else {
+                                            channel.trackUserModeRemove(target, prefixMode);
+                                        }
                                     } else if (add ? mode.isParameterRequiredOnSetting() : mode.isParameterRequiredOnRemoval()) {
-                                        target = args[++currentArg];
+                                        target = args.getArg(++currentArg);
                                     }
-                                    this.eventManager.callEvent(new ChannelModeEvent(this, actor.snapshot(), channel.snapshot(), add, modeChar, prefixMode, target));
+                                    final boolean adding = add;
+                                    final ChannelUserMode changedPrefixMode = prefixMode;
+                                    final String parameter = target;
+                                    this.callEvent(channel, ChannelModeEvent.class, snapshot -> new ChannelModeEvent(this, actor.snapshot(), snapshot, adding, modeChar, changedPrefixMode, parameter));
                                     break;
                             }
                         }
@@ -953,22 +1229,22 @@ final class IRCClient extends InternalClient {
                 break;
             case JOIN:
                 if (actor instanceof ActorProvider.IRCUser) { // Just in case
-                    ActorProvider.IRCChannel channel = this.actorProvider.getChannel(args[0]);
+                    ActorProvider.IRCChannel channel = this.actorProvider.getChannel(args.getArg(0));
                     ActorProvider.IRCUser user = (ActorProvider.IRCUser) actor;
                     channel.trackUserJoin(user);
                     if (user.getNick().equals(this.currentNick)) {
-                        this.channels.add(args[0]);
+                        this.channels.add(args.getArg(0));
                         this.actorProvider.channelTrack(channel);
-                        this.sendRawLine("WHO " + channel.getName());
+                        this.sendRawLine("WHO " + channel.getName(), MessagePriority.CONTROL);
                     }
-                    this.eventManager.callEvent(new ChannelJoinEvent(this, channel.snapshot(), user.snapshot()));
+                    this.callEvent(channel, ChannelJoinEvent.class, snapshot -> new ChannelJoinEvent(this, snapshot, user.snapshot()));
                 }
                 break;
             case PART:
                 if (actor instanceof ActorProvider.IRCUser) { // Just in case
-                    ActorProvider.IRCChannel channel = this.actorProvider.getChannel(args[0]);
+                    ActorProvider.IRCChannel channel = this.actorProvider.getChannel(args.getArg(0));
                     ActorProvider.IRCUser user = (ActorProvider.IRCUser) actor;
-                    this.eventManager.callEvent(new ChannelPartEvent(this, channel.snapshot(), user.snapshot(), (args.length > 1) ? args[1] : ""));
+                    this.callEvent(channel, ChannelPartEvent.class, snapshot -> new ChannelPartEvent(this, snapshot, user.snapshot(), (args.getArgCount() > 1) ? args.getArg(1) : ""));
                     channel.trackUserPart(user);
                     if (user.getNick().equals(this.currentNick)) {
                         this.channels.remove(channel.getName());
@@ -978,16 +1254,16 @@ final class IRCClient extends InternalClient {
                 break;
             case QUIT:
                 if (actor instanceof ActorProvider.IRCUser) { // Just in case
-                    this.eventManager.callEvent(new UserQuitEvent(this, ((ActorProvider.IRCUser) actor).snapshot(), (args.length > 0) ? args[0] : ""));
+                    this.callEvent(UserQuitEvent.class, () -> new UserQuitEvent(this, ((ActorProvider.IRCUser) actor).snapshot(), (args.getArgCount() > 0) ? args.getArg(0) : ""));
                     this.actorProvider.trackUserQuit((ActorProvider.IRCUser) actor);
                 }
                 break;
             case KICK:
-                ActorProvider.IRCChannel kickedChannel = this.actorProvider.getChannel(args[0]);
-                ActorProvider.IRCUser kickedUser = kickedChannel.getUser(args[1]);
-                this.eventManager.callEvent(new ChannelKickEvent(this, kickedChannel.snapshot(), ((ActorProvider.IRCUser) actor).snapshot(), kickedUser.snapshot(), (args.length > 2) ? args[2] : ""));
+                ActorProvider.IRCChannel kickedChannel = this.actorProvider.getChannel(args.getArg(0));
+                ActorProvider.IRCUser kickedUser = kickedChannel.getUser(args.getArg(1));
+                this.callEvent(kickedChannel, ChannelKickEvent.class, snapshot -> new ChannelKickEvent(this, snapshot, ((ActorProvider.IRCUser) actor).snapshot(), kickedUser.snapshot(), (args.getArgCount() > 2) ? args.getArg(2) : ""));
                 kickedChannel.trackUserPart(kickedUser);
-                if (args[1].equals(this.currentNick)) {
+                if (args.getArg(1).equals(this.currentNick)) {
                     this.channels.remove(kickedChannel.getName());
                     this.actorProvider.channelUntrack(kickedChannel);
                 }
@@ -996,31 +1272,43 @@ final class IRCClient extends InternalClient {
                 if (actor instanceof ActorProvider.IRCUser) {
                     ActorProvider.IRCUser user = (ActorProvider.IRCUser) actor;
                     if (user.getNick().equals(this.currentNick)) {
-                        this.currentNick = args[0];
+                        this.currentNick = args.getArg(0);
                     }
-                    ActorProvider.IRCUser newUser = this.actorProvider.trackUserNick(user, args[0]);
-                    this.eventManager.callEvent(new UserNickChangeEvent(this, user.snapshot(), newUser.snapshot()));
+                    ActorProvider.IRCUser newUser = this.actorProvider.trackUserNick(user, args.getArg(0));
+                    this.callEvent(UserNickChangeEvent.class, () -> new UserNickChangeEvent(this, user.snapshot(), newUser.snapshot()));
                 }
                 break;
             case INVITE:
-                ActorProvider.IRCChannel invitedChannel = this.actorProvider.getChannel(args[1]);
-                if ((this.getTypeByTarget(args[0]) == MessageTarget.PRIVATE) && this.channelsIntended.contains(invitedChannel.getName())) {
-                    this.sendRawLine("JOIN " + invitedChannel.getName());
+                ActorProvider.IRCChannel invitedChannel = this.actorProvider.getChannel(args.getArg(1));
+                if ((this.getTypeByTarget(args.getArg(0)) == MessageTarget.PRIVATE) && this.channelsIntended.contains(invitedChannel.getName())) {
+                    this.joinChannels(Collections.singletonMap(invitedChannel.getName(), this.channelKeys.get(invitedChannel.getName())));
                 }
-                this.eventManager.callEvent(new ChannelInviteEvent(this, invitedChannel.snapshot(), actor.snapshot(), args[0]));
+                this.callEvent(invitedChannel, ChannelInviteEvent.class, snapshot -> new ChannelInviteEvent(this, snapshot, actor.snapshot(), args.getArg(0)));
                 break;
             case TOPIC:
-                ActorProvider.IRCChannel topicChannel = this.actorProvider.getChannel(args[0]);
+                ActorProvider.IRCChannel topicChannel = this.actorProvider.getChannel(args.getArg(0));
                 Actor setter = actor.snapshot();
-                topicChannel.setTopic(args[1]);
+                topicChannel.setTopic(args.getArg(1));
                 topicChannel.setTopic(System.currentTimeMillis(), setter);
-                this.eventManager.callEvent(new ChannelTopicEvent(this, topicChannel.snapshot(), true));
+                this.callEvent(topicChannel, ChannelTopicEvent.class, snapshot -> new ChannelTopicEvent(this, snapshot, true));
                 break;
             default:
                 break;
         }
     }
 
+    private boolean isPing(@Nonnull byte[] line) {
+        if (line.length < PING.length) {
+            return false;
+        }
+        for (int i = 0; i < PING.length; i++) {
+            if (line[i] != PING[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private MessageTarget getTypeByTarget(@Nonnull String target) {
         if (this.currentNick.equalsIgnoreCase(target)) {
             return MessageTarget.PRIVATE;
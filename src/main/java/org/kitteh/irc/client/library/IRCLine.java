@@ -0,0 +1,228 @@
+/*
+ * * Copyright (C) 2013-2015 Matt Baxter http://kitteh.org
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kitteh.irc.client.library;
+
+import org.kitteh.irc.client.library.util.Sanity;
+
+import javax.annotation.Nonnull;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A reusable, single-pass view of a line received from the server.
+ * <p>
+ * Parsing works directly on the received bytes and only records the
+ * boundaries of the prefix, command and parameters. Strings are only
+ * decoded for the parts actually requested, once per parse, skipping UTF-8
+ * decoding entirely for pure ASCII lines. Not thread-safe, intended to be
+ * reused by a single processing thread.
+ */
+final class IRCLine {
+    private byte[] line;
+    private int prefixStart;
+    private int prefixEnd;
+    private int commandStart;
+    private int commandEnd;
+    private int numeric;
+    private int argCount;
+    private int[] argStarts = new int[16];
+    private int[] argEnds = new int[16];
+    private String[] args = new String[16];
+
+    /**
+     * Parses a line, replacing any previously parsed line.
+     *
+     * @param line line to parse
+     * @return false if the line contains no command
+     */
+    boolean parse(@Nonnull String line) {
+        Sanity.nullCheck(line, "Line cannot be null");
+        return this.parse(line.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Parses a UTF-8 encoded line, without line ending, replacing any
+     * previously parsed line. The array is not copied.
+     *
+     * @param line line to parse
+     * @return false if the line contains no command
+     */
+    boolean parse(@Nonnull byte[] line) {
+        Sanity.nullCheck(line, "Line cannot be null");
+        this.line = line;
+        Arrays.fill(this.args, 0, this.argCount, null);
+        this.argCount = 0;
+        this.numeric = -1;
+        final int length = line.length;
+        int index = 0;
+
+        if ((length > 0) && (line[0] == ':')) {
+            this.prefixStart = 1;
+            index = this.nextSpace(1);
+            this.prefixEnd = index;
+        } else {
+            this.prefixStart = this.prefixEnd = 0;
+        }
+
+        index = this.skipSpaces(index);
+        if (index >= length) {
+            return false;
+        }
+        this.commandStart = index;
+        index = this.nextSpace(index);
+        this.commandEnd = index;
+        this.numeric = this.parseNumeric(this.commandStart, this.commandEnd);
+
+        while ((index = this.skipSpaces(index)) < length) {
+            if (line[index] == ':') {
+                this.addArg(index + 1, length);
+                break;
+            }
+            int end = this.nextSpace(index);
+            this.addArg(index, end);
+            index = end;
+        }
+        return true;
+    }
+
+    /**
+     * Gets the parameter at the given index.
+     *
+     * @param index parameter index
+     * @return the parameter
+     * @throws ArrayIndexOutOfBoundsException if there is no such parameter
+     */
+    @Nonnull
+    String getArg(int index) {
+        if ((index < 0) || (index >= this.argCount)) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        String arg = this.args[index];
+        if (arg == null) {
+            arg = this.args[index] = this.decode(this.argStarts[index], this.argEnds[index]);
+        }
+        return arg;
+    }
+
+    /**
+     * Gets the number of parameters, including the trailing parameter.
+     *
+     * @return parameter count
+     */
+    int getArgCount() {
+        return this.argCount;
+    }
+
+    /**
+     * Gets the command, as sent. Use {@link #getNumeric()} for numerics.
+     *
+     * @return the command
+     */
+    @Nonnull
+    String getCommand() {
+        return this.decode(this.commandStart, this.commandEnd);
+    }
+
+    /**
+     * Gets the numeric value of the command.
+     *
+     * @return the numeric or -1 if the command is not numeric
+     */
+    int getNumeric() {
+        return this.numeric;
+    }
+
+    /**
+     * Gets the prefix, without the leading colon.
+     *
+     * @return the prefix or an empty string if none sent
+     */
+    @Nonnull
+    String getPrefix() {
+        return (this.prefixStart == this.prefixEnd) ? "" : this.decode(this.prefixStart, this.prefixEnd);
+    }
+
+    @Nonnull
+    @Override
+    public String toString() {
+        return (this.line == null) ? "" : this.decode(0, this.line.length);
+    }
+
+    private void addArg(int start, int end) {
+        if (this.argCount == this.argStarts.length) {
+            int[] newStarts = new int[this.argCount * 2];
+            int[] newEnds = new int[this.argCount * 2];
+            System.arraycopy(this.argStarts, 0, newStarts, 0, this.argCount);
+            System.arraycopy(this.argEnds, 0, newEnds, 0, this.argCount);
+            this.argStarts = newStarts;
+            this.argEnds = newEnds;
+            this.args = Arrays.copyOf(this.args, this.argCount * 2);
+        }
+        this.argStarts[this.argCount] = start;
+        this.argEnds[this.argCount] = end;
+        this.argCount++;
+    }
+
+    @Nonnull
+    private String decode(int start, int end) {
+        for (int index = start; index < end; index++) {
+            if (this.line[index] < 0) { // High bit set, not ASCII
+                return new String(this.line, start, end - start, StandardCharsets.UTF_8);
+            }
+        }
+        // ASCII reads the same in ISO-8859-1, which decodes as a straight copy
+        return new String(this.line, start, end - start, StandardCharsets.ISO_8859_1);
+    }
+
+    private int nextSpace(int index) {
+        final int length = this.line.length;
+        while ((index < length) && (this.line[index] != ' ')) {
+            index++;
+        }
+        return index;
+    }
+
+    private int parseNumeric(int start, int end) {
+        if ((end - start) > 9) { // Don't overflow, real numerics are 3 digits
+            return -1;
+        }
+        int value = 0;
+        for (int index = start; index < end; index++) {
+            byte c = this.line[index];
+            if ((c < '0') || (c > '9')) {
+                return -1;
+            }
+            value = (value * 10) + (c - '0');
+        }
+        return value;
+    }
+
+    private int skipSpaces(int index) {
+        final int length = this.line.length;
+        while ((index < length) && (this.line[index] == ' ')) {
+            index++;
+        }
+        return index;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,82 @@
+/*
+ * * Copyright (C) 2013-2015 Matt Baxter http://kitteh.org
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kitteh.irc.client.library;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufProcessor;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.TooLongFrameException;
+
+import java.util.List;
+
+/**
+ * Splits the inbound byte stream into lines, accepting CRLF or bare LF.
+ * <p>
+ * Each line is copied out of the cumulation buffer once, as a byte array
+ * without its line ending, and handed on undecoded. Parsing and decoding
+ * happen later in {@link IRCLine}, and only for the parts which are read.
+ */
+final class IRCLineDecoder extends ByteToMessageDecoder {
+    private final int maxLength;
+    private boolean discarding;
+
+    /**
+     * Creates a decoder.
+     *
+     * @param maxLength maximum line length, excluding line ending
+     */
+    IRCLineDecoder(int maxLength) {
+        this.maxLength = maxLength;
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+        int lineFeed;
+        while ((lineFeed = in.forEachByte(ByteBufProcessor.FIND_LF)) >= 0) {
+            int start = in.readerIndex();
+            int end = lineFeed;
+            if ((end > start) && (in.getByte(end - 1) == '\r')) {
+                end--;
+            }
+            in.readerIndex(lineFeed + 1);
+            if (this.discarding) {
+                this.discarding = false; // End of the overly long line
+            } else if ((end - start) > this.maxLength) {
+                ctx.fireExceptionCaught(new TooLongFrameException("Line length " + (end - start) + " exceeds " + this.maxLength));
+            } else if (end > start) {
+                byte[] line = new byte[end - start];
+                in.getBytes(start, line);
+                out.add(line);
+            }
+        }
+        if (in.readableBytes() > (this.maxLength + 1)) { // Room for a trailing CR
+            if (!this.discarding) {
+                this.discarding = true;
+                ctx.fireExceptionCaught(new TooLongFrameException("Line length exceeds " + this.maxLength));
+            }
+            in.skipBytes(in.readableBytes());
+        }
+    }
+}
\ No newline at end of file
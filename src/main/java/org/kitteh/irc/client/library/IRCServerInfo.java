@@ -30,33 +30,65 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Pattern;
 
+/**
+ * Server information, immutable once published. Each change creates a new
+ * instance for the client to swap in, sharing everything unchanged, so
+ * readers on any thread always see one consistent state without copying.
+ */
 final class IRCServerInfo implements ServerInfo {
+    // Lookup tables are indexed by char, covering ASCII as modes and prefixes are
+    private static final int LOOKUP_SIZE = 128;
+    private static final List<Character> DEFAULT_CHANNEL_PREFIXES = Collections.unmodifiableList(Arrays.asList('#', '&', '!', '+'));
+
     private CaseMapping caseMapping = CaseMapping.RFC1459;
     private int channelLengthLimit = -1;
-    private Map<Character, Integer> channelLimits = new HashMap<>();
-    private Map<Character, ChannelModeType> channelModes = ChannelModeType.getDefaultModes();
-    private List<Character> channelPrefixes = Arrays.asList('#', '&', '!', '+');
+    private Map<Character, Integer> channelLimits = Collections.emptyMap();
+    // Prefixes sharing a limit, each mapped to all prefixes of its group
+    private Map<Character, String> channelLimitGroups = Collections.emptyMap();
+    private Map<Character, ChannelModeType> channelModes = Collections.unmodifiableMap(ChannelModeType.getDefaultModes());
+    private List<Character> channelPrefixes = DEFAULT_CHANNEL_PREFIXES;
+    private BitSet channelPrefixBits;
     private List<ChannelUserMode> channelUserModes;
+    private ChannelModeType[] channelModesByChar;
+    // Indexes into channelUserModes, or -1
+    private byte[] channelUserModesByMode;
+    private byte[] channelUserModesByPrefix;
     private String networkName;
     private int nickLengthLimit = -1;
     private String serverAddress;
     private String serverVersion;
-
-    // TODO adapt for changes
-    // Pattern: ([#!&\+][^ ,\07\r\n]{1,49})
-    // Screw it, let's assume IRCDs disregard length policy
-    // New pattern: ([#!&\+][^ ,\07\r\n]+)
-    private final Pattern channelPattern = Pattern.compile("([#!&\\+][^ ,\\07\\r\\n]+)");
+    private Map<String, Integer> targetLimits = Collections.emptyMap();
 
     IRCServerInfo(@Nonnull Client client) {
-        this.channelUserModes = new ArrayList<>();
-        this.channelUserModes.add(new ActorProvider.IRCChannelUserMode(client, 'o', '@'));
-        this.channelUserModes.add(new ActorProvider.IRCChannelUserMode(client, 'v', '+'));
+        this.channelUserModes = Collections.unmodifiableList(Arrays.asList(new ActorProvider.IRCChannelUserMode(client, 'o', '@'), new ActorProvider.IRCChannelUserMode(client, 'v', '+')));
+        this.buildChannelModeLookup();
+        this.buildChannelPrefixLookup();
+        this.buildChannelUserModeLookup();
+    }
+
+    private IRCServerInfo(@Nonnull IRCServerInfo info) {
+        this.caseMapping = info.caseMapping;
+        this.channelLengthLimit = info.channelLengthLimit;
+        this.channelLimits = info.channelLimits;
+        this.channelLimitGroups = info.channelLimitGroups;
+        this.channelModes = info.channelModes;
+        this.channelPrefixes = info.channelPrefixes;
+        this.channelPrefixBits = info.channelPrefixBits;
+        this.channelUserModes = info.channelUserModes;
+        this.channelModesByChar = info.channelModesByChar;
+        this.channelUserModesByMode = info.channelUserModesByMode;
+        this.channelUserModesByPrefix = info.channelUserModesByPrefix;
+        this.networkName = info.networkName;
+        this.nickLengthLimit = info.nickLengthLimit;
+        this.serverAddress = info.serverAddress;
+        this.serverVersion = info.serverVersion;
+        this.targetLimits = info.targetLimits;
     }
 
     @Nonnull
@@ -65,8 +97,11 @@ final class IRCServerInfo implements ServerInfo {
         return this.caseMapping;
     }
 
-    void setCaseMapping(@Nonnull CaseMapping caseMapping) {
-        this.caseMapping = caseMapping;
+    @Nonnull
+    IRCServerInfo withCaseMapping(@Nonnull CaseMapping caseMapping) {
+        IRCServerInfo info = new IRCServerInfo(this);
+        info.caseMapping = caseMapping;
+        return info;
     }
 
     @Override
@@ -74,48 +109,140 @@ final class IRCServerInfo implements ServerInfo {
         return this.channelLengthLimit;
     }
 
-    void setChannelLengthLimit(int channelLengthLimit) {
-        this.channelLengthLimit = channelLengthLimit;
+    @Nonnull
+    IRCServerInfo withChannelLengthLimit(int channelLengthLimit) {
+        IRCServerInfo info = new IRCServerInfo(this);
+        info.channelLengthLimit = channelLengthLimit;
+        return info;
     }
 
     @Nonnull
     @Override
     public Map<Character, Integer> getChannelLimits() {
-        return new HashMap<>(this.channelLimits);
+        return this.channelLimits;
     }
 
-    void setChannelLimits(Map<Character, Integer> channelLimits) {
-        this.channelLimits = channelLimits;
+    /**
+     * Creates information with new CHANLIMIT values, each limit shared by
+     * a group of prefixes.
+     *
+     * @param groupLimits groups of prefixes, such as #&amp;, mapped to the
+     * limit on channels across the group
+     * @return new information
+     */
+    @Nonnull
+    IRCServerInfo withChannelLimits(@Nonnull Map<String, Integer> groupLimits) {
+        IRCServerInfo info = new IRCServerInfo(this);
+        Map<Character, Integer> limits = new HashMap<>();
+        Map<Character, String> groups = new HashMap<>();
+        groupLimits.forEach((group, limit) -> {
+            for (char prefix : group.toCharArray()) {
+                limits.put(prefix, limit);
+                groups.put(prefix, group);
+            }
+        });
+        info.channelLimits = Collections.unmodifiableMap(limits);
+        info.channelLimitGroups = Collections.unmodifiableMap(groups);
+        return info;
+    }
+
+    /**
+     * Gets the group of prefixes sharing a CHANLIMIT limit with a prefix.
+     *
+     * @param prefix channel prefix
+     * @return all prefixes of the group, or null if the prefix has no limit
+     */
+    @Nullable
+    String getChannelLimitGroup(char prefix) {
+        return this.channelLimitGroups.get(prefix);
     }
 
     @Nonnull
     @Override
     public Map<Character, ChannelModeType> getChannelModes() {
-        return new HashMap<>(this.channelModes);
+        return this.channelModes;
     }
 
-    void setChannelModes(Map<Character, ChannelModeType> channelModes) {
-        this.channelModes = channelModes;
+    @Nonnull
+    IRCServerInfo withChannelModes(@Nonnull Map<Character, ChannelModeType> channelModes) {
+        IRCServerInfo info = new IRCServerInfo(this);
+        info.channelModes = Collections.unmodifiableMap(new HashMap<>(channelModes));
+        info.buildChannelModeLookup();
+        return info;
+    }
+
+    /**
+     * Gets the type of a channel mode without copying the modes.
+     *
+     * @param mode mode character
+     * @return the mode type or null if not a known channel mode
+     */
+    @Nullable
+    ChannelModeType getChannelMode(char mode) {
+        return (mode < LOOKUP_SIZE) ? this.channelModesByChar[mode] : null;
     }
 
     @Nonnull
     @Override
     public List<Character> getChannelPrefixes() {
-        return new ArrayList<>(this.channelPrefixes);
+        return this.channelPrefixes;
     }
 
-    void setChannelPrefixes(@Nonnull List<Character> channelPrefixes) {
-        this.channelPrefixes = channelPrefixes;
+    @Nonnull
+    IRCServerInfo withChannelPrefixes(@Nonnull List<Character> channelPrefixes) {
+        IRCServerInfo info = new IRCServerInfo(this);
+        info.channelPrefixes = Collections.unmodifiableList(new ArrayList<>(channelPrefixes));
+        info.buildChannelPrefixLookup();
+        return info;
     }
 
     @Nonnull
     @Override
     public List<ChannelUserMode> getChannelUserModes() {
-        return new ArrayList<>(this.channelUserModes);
+        return this.channelUserModes;
+    }
+
+    @Nonnull
+    IRCServerInfo withChannelUserModes(@Nonnull List<ChannelUserMode> channelUserModes) {
+        IRCServerInfo info = new IRCServerInfo(this);
+        info.channelUserModes = Collections.unmodifiableList(new ArrayList<>(channelUserModes));
+        info.buildChannelUserModeLookup();
+        return info;
+    }
+
+    /**
+     * Gets a channel user mode by mode character without copying the modes.
+     *
+     * @param mode mode character, such as o
+     * @return the user mode or null if not a channel user mode
+     */
+    @Nullable
+    ChannelUserMode getChannelUserModeByMode(char mode) {
+        int index = this.getChannelUserModeIndex(mode);
+        return (index < 0) ? null : this.channelUserModes.get(index);
+    }
+
+    /**
+     * Gets a channel user mode by prefix without copying the modes.
+     *
+     * @param prefix prefix character, such as @
+     * @return the user mode or null if not a channel user mode prefix
+     */
+    @Nullable
+    ChannelUserMode getChannelUserModeByPrefix(char prefix) {
+        int index = (prefix < LOOKUP_SIZE) ? this.channelUserModesByPrefix[prefix] : -1;
+        return (index < 0) ? null : this.channelUserModes.get(index);
     }
 
-    void setChannelUserModes(@Nonnull List<ChannelUserMode> channelUserModes) {
-        this.channelUserModes = channelUserModes;
+    /**
+     * Gets the position of a channel user mode in {@link
+     * #getChannelUserModes()}, most powerful first.
+     *
+     * @param mode mode character, such as o
+     * @return the position or -1 if not a channel user mode
+     */
+    int getChannelUserModeIndex(char mode) {
+        return (mode < LOOKUP_SIZE) ? this.channelUserModesByMode[mode] : -1;
     }
 
     @Nullable
@@ -124,8 +251,11 @@ final class IRCServerInfo implements ServerInfo {
         return this.networkName;
     }
 
-    void setNetworkName(@Nonnull String networkName) {
-        this.networkName = networkName;
+    @Nonnull
+    IRCServerInfo withNetworkName(@Nonnull String networkName) {
+        IRCServerInfo info = new IRCServerInfo(this);
+        info.networkName = networkName;
+        return info;
     }
 
     @Override
@@ -133,8 +263,11 @@ final class IRCServerInfo implements ServerInfo {
         return this.nickLengthLimit;
     }
 
-    void setNickLengthLimit(int nickLengthLimit) {
-        this.nickLengthLimit = nickLengthLimit;
+    @Nonnull
+    IRCServerInfo withNickLengthLimit(int nickLengthLimit) {
+        IRCServerInfo info = new IRCServerInfo(this);
+        info.nickLengthLimit = nickLengthLimit;
+        return info;
     }
 
     @Nullable
@@ -143,25 +276,38 @@ final class IRCServerInfo implements ServerInfo {
         return this.serverAddress;
     }
 
-    void setServerAddress(@Nonnull String serverAddress) {
-        this.serverAddress = serverAddress;
-    }
-
     @Nullable
     @Override
     public String getServerVersion() {
         return this.serverVersion;
     }
 
-    void setServerVersion(@Nonnull String serverVersion) {
-        this.serverVersion = serverVersion;
+    @Nonnull
+    IRCServerInfo withServer(@Nonnull String serverAddress, @Nonnull String serverVersion) {
+        IRCServerInfo info = new IRCServerInfo(this);
+        info.serverAddress = serverAddress;
+        info.serverVersion = serverVersion;
+        return info;
+    }
+
+    @Nonnull
+    @Override
+    public Map<String, Integer> getTargetLimits() {
+        return this.targetLimits;
+    }
+
+    @Nonnull
+    IRCServerInfo withTargetLimits(@Nonnull Map<String, Integer> targetLimits) {
+        IRCServerInfo info = new IRCServerInfo(this);
+        info.targetLimits = Collections.unmodifiableMap(new HashMap<>(targetLimits));
+        return info;
     }
 
     // Util stuffs
     @Override
     public boolean isValidChannel(@Nonnull String name) {
         Sanity.nullCheck(name, "Name cannot be null");
-        return (name.length() > 1) && ((this.channelLengthLimit < 0) || ((name.length() <= this.channelLengthLimit) && this.getChannelPrefixes().contains(name.charAt(0)) && this.channelPattern.matcher(name).matches()));
+        return this.isValidChannel(name, 0);
     }
 
     boolean isTargetedChannel(@Nonnull String name) {
@@ -170,15 +316,72 @@ final class IRCServerInfo implements ServerInfo {
 
     @Nullable
     ChannelUserMode getTargetedChannelInfo(@Nonnull String name) {
+        if (name.isEmpty()) {
+            return null;
+        }
         final char first = name.charAt(0);
-        final String shorter = name.substring(1);
-        if (!this.channelPrefixes.contains(first) && this.isValidChannel(shorter)) {
-            for (ChannelUserMode mode : this.channelUserModes) {
-                if (mode.getPrefix() == first) {
-                    return mode;
-                }
-            }
+        if (!this.isChannelPrefix(first) && this.isValidChannel(name, 1)) {
+            return this.getChannelUserModeByPrefix(first);
         }
         return null;
     }
+
+    // Scans the name from the given offset: a channel prefix, then at least
+    // one character that isn't a space, comma, bell, CR or LF
+    private boolean isValidChannel(@Nonnull String name, int offset) {
+        final int length = name.length() - offset;
+        if ((length < 2) || ((this.channelLengthLimit >= 0) && (length > this.channelLengthLimit)) || !this.isChannelPrefix(name.charAt(offset))) {
+            return false;
+        }
+        for (int index = offset + 1; index < name.length(); index++) {
+            switch (name.charAt(index)) {
+                case ' ':
+                case ',':
+                case '\007':
+                case '\r':
+                case '\n':
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isChannelPrefix(char c) {
+        return (c < LOOKUP_SIZE) && this.channelPrefixBits.get(c);
+    }
+
+    private void buildChannelModeLookup() {
+        ChannelModeType[] lookup = new ChannelModeType[LOOKUP_SIZE];
+        this.channelModes.forEach((mode, type) -> {
+            if (mode < LOOKUP_SIZE) {
+                lookup[mode] = type;
+            }
+        });
+        this.channelModesByChar = lookup;
+    }
+
+    private void buildChannelPrefixLookup() {
+        BitSet bits = new BitSet(LOOKUP_SIZE);
+        this.channelPrefixes.stream().filter(prefix -> prefix < LOOKUP_SIZE).forEach(bits::set);
+        this.channelPrefixBits = bits;
+    }
+
+    private void buildChannelUserModeLookup() {
+        byte[] byMode = new byte[LOOKUP_SIZE];
+        byte[] byPrefix = new byte[LOOKUP_SIZE];
+        Arrays.fill(byMode, (byte) -1);
+        Arrays.fill(byPrefix, (byte) -1);
+        // Backwards, so the most powerful wins any duplicate
+        for (int index = Math.min(this.channelUserModes.size(), Byte.MAX_VALUE) - 1; index >= 0; index--) {
+            ChannelUserMode mode = this.channelUserModes.get(index);
+            if (mode.getMode() < LOOKUP_SIZE) {
+                byMode[mode.getMode()] = (byte) index;
+            }
+            if (mode.getPrefix() < LOOKUP_SIZE) {
+                byPrefix[mode.getPrefix()] = (byte) index;
+            }
+        }
+        this.channelUserModesByMode = byMode;
+        this.channelUserModesByPrefix = byPrefix;
+    }
 }
\ No newline at end of file
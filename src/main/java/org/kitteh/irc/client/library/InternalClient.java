@@ -24,9 +24,25 @@
 package org.kitteh.irc.client.library;
 
 import javax.annotation.Nonnull;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
 
 abstract class InternalClient implements Client {
-    abstract void processLine(@Nonnull String line);
+    /**
+     * Answers a line right away if it is a PING, rather than waiting on
+     * the processing queue.
+     *
+     * @param line line received
+     * @return true if the line was a PING and has been answered
+     */
+    abstract boolean processPing(@Nonnull byte[] line);
+
+    /**
+     * Queues lines for processing, in order, with a single handoff.
+     *
+     * @param lines lines received
+     */
+    abstract void processLines(@Nonnull Collection<byte[]> lines);
 
     @Nonnull
     abstract Config getConfig();
@@ -40,9 +56,35 @@ abstract class InternalClient implements Client {
     @Nonnull
     abstract Listener<String> getOutputListener();
 
+    @Nonnull
+    abstract OutboundQueue getOutboundQueue();
+
+    /**
+     * Gets the server information as currently known, which unlike {@link
+     * #getServerInfo()} does not change later.
+     *
+     * @return current server information
+     */
+    @Nonnull
+    abstract IRCServerInfo getServerInfoSnapshot();
+
     abstract void authenticate();
 
-    abstract void connect();
+    /**
+     * Starts connecting to the server, registering once connected.
+     *
+     * @return future completed once registration has been sent, or
+     * completed exceptionally if the connection attempt fails
+     */
+    @Nonnull
+    abstract CompletableFuture<Void> connect();
+
+    /**
+     * Counts a reconnect attempt and gets the delay before making it.
+     *
+     * @return delay in milliseconds, or negative to not reconnect
+     */
+    abstract long nextReconnectDelay();
 
     abstract void ping();
 }
\ No newline at end of file
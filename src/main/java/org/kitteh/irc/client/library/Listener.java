@@ -26,6 +26,7 @@ package org.kitteh.irc.client.library;
 import org.kitteh.irc.client.library.util.QueueProcessingThread;
 
 import javax.annotation.Nullable;
+import java.util.Collection;
 import java.util.Queue;
 import java.util.function.Consumer;
 
@@ -68,12 +69,22 @@ final class Listener<Type> {
         this.thread = (consumer == null) ? null : new ListenerThread(clientName, consumer);
     }
 
+    boolean isActive() {
+        return this.thread != null;
+    }
+
     void queue(Type item) {
         if (this.thread != null) {
             this.thread.queue(item);
         }
     }
 
+    void queueAll(Collection<Type> items) {
+        if (this.thread != null) {
+            this.thread.queueAll(items);
+        }
+    }
+
     void setConsumer(Consumer<Type> consumer) {
         if (consumer == null) {
             this.shutdown();
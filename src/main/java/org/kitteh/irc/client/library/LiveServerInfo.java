@@ -0,0 +1,131 @@
+/*
+ * * Copyright (C) 2013-2015 Matt Baxter http://kitteh.org
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kitteh.irc.client.library;
+
+import org.kitteh.irc.client.library.element.ChannelUserMode;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Server information for one connection which follows each new {@link
+ * IRCServerInfo} the client swaps in, so it can be held on to.
+ */
+final class LiveServerInfo implements ServerInfo {
+    private volatile IRCServerInfo info;
+
+    LiveServerInfo(@Nonnull IRCServerInfo info) {
+        this.info = info;
+    }
+
+    /**
+     * Gets the current information, which does not change.
+     *
+     * @return the current server information
+     */
+    @Nonnull
+    IRCServerInfo get() {
+        return this.info;
+    }
+
+    /**
+     * Switches to new information.
+     *
+     * @param info new server information
+     */
+    void set(@Nonnull IRCServerInfo info) {
+        this.info = info;
+    }
+
+    @Nonnull
+    @Override
+    public CaseMapping getCaseMapping() {
+        return this.info.getCaseMapping();
+    }
+
+    @Override
+    public int getChannelLengthLimit() {
+        return this.info.getChannelLengthLimit();
+    }
+
+    @Nonnull
+    @Override
+    public Map<Character, Integer> getChannelLimits() {
+        return this.info.getChannelLimits();
+    }
+
+    @Nonnull
+    @Override
+    public Map<Character, ChannelModeType> getChannelModes() {
+        return this.info.getChannelModes();
+    }
+
+    @Nonnull
+    @Override
+    public List<Character> getChannelPrefixes() {
+        return this.info.getChannelPrefixes();
+    }
+
+    @Nonnull
+    @Override
+    public List<ChannelUserMode> getChannelUserModes() {
+        return this.info.getChannelUserModes();
+    }
+
+    @Nullable
+    @Override
+    public String getNetworkName() {
+        return this.info.getNetworkName();
+    }
+
+    @Override
+    public int getNickLengthLimit() {
+        return this.info.getNickLengthLimit();
+    }
+
+    @Nullable
+    @Override
+    public String getServerAddress() {
+        return this.info.getServerAddress();
+    }
+
+    @Nonnull
+    @Override
+    public Map<String, Integer> getTargetLimits() {
+        return this.info.getTargetLimits();
+    }
+
+    @Nullable
+    @Override
+    public String getServerVersion() {
+        return this.info.getServerVersion();
+    }
+
+    @Override
+    public boolean isValidChannel(@Nonnull String name) {
+        return this.info.isValidChannel(name);
+    }
+}
\ No newline at end of file
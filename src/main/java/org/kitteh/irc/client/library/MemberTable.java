@@ -0,0 +1,199 @@
+/*
+ * * Copyright (C) 2013-2015 Matt Baxter http://kitteh.org
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kitteh.irc.client.library;
+
+import javax.annotation.Nonnull;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * An open addressing hash table from positive user ids to mode bitmasks,
+ * stored in two primitive arrays. Costs a few bytes per channel member
+ * rather than a map entry and set per member. Not thread-safe.
+ */
+final class MemberTable {
+    /**
+     * Receives each member of a table.
+     */
+    interface Visitor {
+        /**
+         * Visits a member.
+         *
+         * @param id user id
+         * @param modes mode bitmask
+         */
+        void visit(int id, int modes);
+    }
+
+    private static final int MINIMUM_CAPACITY = 8;
+
+    // 0 marks a free slot, so ids start at 1
+    private int[] ids = new int[MINIMUM_CAPACITY];
+    private int[] modes = new int[MINIMUM_CAPACITY];
+    private int size;
+
+    /**
+     * Gets the number of members.
+     *
+     * @return member count
+     */
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * Gets if the user is a member.
+     *
+     * @param id user id
+     * @return true if a member
+     */
+    boolean contains(int id) {
+        return this.ids[this.slot(id)] == id;
+    }
+
+    /**
+     * Gets the modes of a member.
+     *
+     * @param id user id
+     * @return mode bitmask, or -1 if not a member
+     */
+    int get(int id) {
+        int slot = this.slot(id);
+        return (this.ids[slot] == id) ? this.modes[slot] : -1;
+    }
+
+    /**
+     * Adds a member or replaces its modes.
+     *
+     * @param id user id, positive
+     * @param modes mode bitmask
+     */
+    void put(int id, int modes) {
+        int slot = this.slot(id);
+        if (this.ids[slot] != id) {
+            if (((this.size + 1) * 4) > (this.ids.length * 3)) {
+                this.resize(this.ids.length * 2);
+                slot = this.slot(id);
+            }
+            this.ids[slot] = id;
+            this.size++;
+        }
+        this.modes[slot] = modes;
+    }
+
+    /**
+     * Removes a member.
+     *
+     * @param id user id
+     * @return true if the user was a member
+     */
+    boolean remove(int id) {
+        int slot = this.slot(id);
+        if (this.ids[slot] != id) {
+            return false;
+        }
+        this.size--;
+        // Shift back later entries of the probe run so lookups never stop early
+        int mask = this.ids.length - 1;
+        int free = slot;
+        for (int next = (free + 1) & mask; this.ids[next] != 0; next = (next + 1) & mask) {
+            int home = hash(this.ids[next]) & mask;
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                this.ids[free] = this.ids[next];
+                this.modes[free] = this.modes[next];
+                free = next;
+            }
+        }
+        this.ids[free] = 0;
+        this.modes[free] = 0;
+        if ((this.ids.length > MINIMUM_CAPACITY) && ((this.size * 8) < this.ids.length)) {
+            this.resize(this.ids.length / 2);
+        }
+        return true;
+    }
+
+    /**
+     * Removes all members.
+     */
+    void clear() {
+        this.ids = new int[MINIMUM_CAPACITY];
+        this.modes = new int[MINIMUM_CAPACITY];
+        this.size = 0;
+    }
+
+    /**
+     * Replaces the modes of every member.
+     *
+     * @param update function of each member's current mode bitmask
+     */
+    void updateAll(@Nonnull IntUnaryOperator update) {
+        for (int slot = 0; slot < this.ids.length; slot++) {
+            if (this.ids[slot] != 0) {
+                this.modes[slot] = update.applyAsInt(this.modes[slot]);
+            }
+        }
+    }
+
+    /**
+     * Visits every member, in no particular order. The table must not be
+     * changed while visiting.
+     *
+     * @param visitor visitor of each member
+     */
+    void forEach(@Nonnull Visitor visitor) {
+        for (int slot = 0; slot < this.ids.length; slot++) {
+            if (this.ids[slot] != 0) {
+                visitor.visit(this.ids[slot], this.modes[slot]);
+            }
+        }
+    }
+
+    private static int hash(int id) {
+        int hash = id * 0x9E3779B9; // Fibonacci hashing spreads sequential ids
+        return hash ^ (hash >>> 16);
+    }
+
+    private void resize(int capacity) {
+        int[] oldIds = this.ids;
+        int[] oldModes = this.modes;
+        this.ids = new int[capacity];
+        this.modes = new int[capacity];
+        for (int slot = 0; slot < oldIds.length; slot++) {
+            if (oldIds[slot] != 0) {
+                int newSlot = this.slot(oldIds[slot]);
+                this.ids[newSlot] = oldIds[slot];
+                this.modes[newSlot] = oldModes[slot];
+            }
+        }
+    }
+
+    // The slot holding the id, or the free slot where it belongs
+    private int slot(int id) {
+        int mask = this.ids.length - 1;
+        int slot = hash(id) & mask;
+        while ((this.ids[slot] != 0) && (this.ids[slot] != id)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+}
\ No newline at end of file
@@ -24,7 +24,7 @@
 package org.kitteh.irc.client.library;
 
 import io.netty.bootstrap.Bootstrap;
-import io.netty.buffer.Unpooled;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelFuture;
@@ -38,10 +38,6 @@ import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioSocketChannel;
-import io.netty.handler.codec.DelimiterBasedFrameDecoder;
-import io.netty.handler.codec.MessageToMessageEncoder;
-import io.netty.handler.codec.string.StringDecoder;
-import io.netty.handler.codec.string.StringEncoder;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslContextBuilder;
 import io.netty.handler.timeout.IdleState;
@@ -58,52 +54,170 @@ import javax.net.ssl.SSLException;
 import java.io.File;
 import java.io.IOException;
 import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Queue;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 final class NettyManager {
     static final class ClientConnection {
         private final InternalClient client;
-        private final Channel channel;
-        private final Queue<String> queue = new ConcurrentLinkedQueue<>();
+        // Set as the pipeline is built, which may be before connect returns
+        private volatile Channel channel;
+        private final CompletableFuture<Void> connected = new CompletableFuture<>();
+        private final OutboundQueue queue;
         private boolean reconnect = true;
-        private ScheduledFuture<?> scheduledSending;
-        private final Object scheduledSendingLock = new Object();
+        private volatile boolean sending;
+        private final AtomicBoolean drainQueued = new AtomicBoolean();
+        // Only touched on the channel's event loop
+        private FloodControl floodControl;
+        @Nullable
+        private ScheduledFuture<?> drainTimer;
 
-        private ClientConnection(@Nonnull final InternalClient client, @Nonnull ChannelFuture future) {
+        private ClientConnection(@Nonnull final InternalClient client, @Nonnull Bootstrap bootstrap) {
             this.client = client;
+            this.queue = client.getOutboundQueue();
+            this.floodControl = this.newFloodControl();
+
+            bootstrap.handler(new ChannelInitializer<SocketChannel>() {
+                @Override
+                public void initChannel(SocketChannel channel) throws Exception {
+                    ClientConnection.this.initChannel(channel);
+                }
+            });
+            SocketAddress bind = client.getConfig().get(Config.BIND_ADDRESS);
+            SocketAddress server = client.getConfig().getNotNull(Config.SERVER_ADDRESS);
+            ChannelFuture future = (bind == null) ? bootstrap.connect(server) : bootstrap.connect(server, bind);
             this.channel = future.channel();
 
-            try {
-                future.sync();
-            } catch (InterruptedException e) {
-                this.client.getExceptionListener().queue(e);
-                return;
-            }
+            future.addListener(connectFuture -> {
+                if (connectFuture.isSuccess()) {
+                    this.connected.complete(null);
+                } else {
+                    this.client.getExceptionListener().queue(new KittehConnectionException(connectFuture.cause(), true));
+                    this.connected.completeExceptionally(connectFuture.cause());
+                    this.channel.close(); // Make sure the close listener gets to reconnect
+                }
+            });
 
-            // Outbound - Processed in pipeline back to front.
-            this.channel.pipeline().addFirst("[OUTPUT] Output listener", new MessageToMessageEncoder<String>() {
-                @Override
-                protected void encode(ChannelHandlerContext ctx, String msg, List<Object> out) throws Exception {
-                    ClientConnection.this.client.getOutputListener().queue(msg);
-                    out.add(msg);
+            // Clean up on disconnect
+            this.channel.closeFuture().addListener(futureListener -> {
+                ClientConnection.this.sending = false; // The queue carries over to the next connection
+                // Protocol traffic only makes sense on the connection it was meant for
+                ClientConnection.this.queue.removePriority(MessagePriority.CONTROL);
+                if (ClientConnection.this.client.getConfig().getNotNull(Config.QUEUE_REPLAY_POLICY) == QueueReplayPolicy.DISCARD) {
+                    ClientConnection.this.queue.clear();
+                }
+                if (ClientConnection.this.reconnect) {
+                    long delay = ClientConnection.this.client.nextReconnectDelay();
+                    if (delay < 0) {
+                        ClientConnection.this.reconnect = false; // Policy gave up
+                    } else {
+                        delay = reserveConnectAttempt(ClientConnection.this.client, delay);
+                        ClientConnection.this.channel.eventLoop().schedule(() -> {
+                            ClientConnection.this.client.connect();
+                        }, delay, TimeUnit.MILLISECONDS);
+                    }
                 }
+                ClientConnection.this.client.getEventManager().callEvent(new ClientConnectionClosedEvent(ClientConnection.this.client, ClientConnection.this.reconnect));
+                removeClientConnection(ClientConnection.this, ClientConnection.this.reconnect);
             });
-            this.channel.pipeline().addFirst("[OUTPUT] Add line breaks", new MessageToMessageEncoder<String>() {
-                @Override
-                protected void encode(ChannelHandlerContext ctx, String msg, List<Object> out) throws Exception {
-                    out.add(msg + "\r\n");
+        }
+
+        /**
+         * Gets a future completed once connected to the server, or completed
+         * exceptionally if the connection attempt fails.
+         *
+         * @return connection future
+         */
+        @Nonnull
+        CompletableFuture<Void> getConnected() {
+            return this.connected;
+        }
+
+        void sendMessage(@Nonnull OutboundLine message, boolean priority) {
+            this.sendMessage(message, priority, false);
+        }
+
+        void sendMessage(@Nonnull OutboundLine message, boolean priority, boolean avoidDuplicates) {
+            if (priority) {
+                this.channel.writeAndFlush(message);
+            } else {
+                synchronized (this.queue) {
+                    if (avoidDuplicates && this.queue.contains(message)) {
+                        return;
+                    }
+                    if (this.queue.add(message) == message) {
+                        return; // Dropped for lack of room
+                    }
                 }
+                this.requestDrain();
+            }
+        }
+
+        /**
+         * Runs a task on this connection's event loop after a delay.
+         *
+         * @param task task to run
+         * @param delay delay in milliseconds
+         */
+        void schedule(@Nonnull Runnable task, long delay) {
+            this.channel.eventLoop().schedule(task, delay, TimeUnit.MILLISECONDS);
+        }
+
+        void shutdown(@Nullable String message) {
+            this.shutdown(message, false);
+        }
+
+        /**
+         * Gets if the connection is registered and sending, which it stays
+         * until closed.
+         *
+         * @return true if sending
+         */
+        boolean isSending() {
+            return this.sending;
+        }
+
+        void startSending() {
+            if (this.client.getConfig().getNotNull(Config.QUEUE_REPLAY_POLICY) == QueueReplayPolicy.TTL) {
+                this.queue.removeQueuedBefore(System.currentTimeMillis() - this.client.getConfig().getNotNull(Config.QUEUE_REPLAY_TTL));
+            }
+            this.sending = true;
+            this.requestDrain();
+        }
+
+        void updateScheduling() {
+            this.channel.eventLoop().execute(() -> {
+                final long now = System.currentTimeMillis();
+                long recovery = this.floodControl.getRecoveryMillis(now);
+                this.floodControl = this.newFloodControl();
+                this.floodControl.spend(now, recovery);
+                if (this.drainTimer != null) {
+                    this.drainTimer.cancel(false);
+                    this.drainTimer = null;
+                }
+                this.drain();
             });
-            this.channel.pipeline().addFirst("[OUTPUT] String encoder", new StringEncoder(CharsetUtil.UTF_8));
+        }
+
+        /**
+         * Sets up the pipeline of a new channel, before it connects.
+         */
+        private void initChannel(@Nonnull SocketChannel channel) {
+            this.channel = channel;
+
+            // Outbound
+            channel.pipeline().addFirst("[OUTPUT] Line encoder", new OutboundLineEncoder(this.client.getOutputListener()));
 
             // Handle timeout
-            this.channel.pipeline().addLast("[INPUT] Idle state handler", new IdleStateHandler(250, 0, 60));
-            this.channel.pipeline().addLast("[INPUT] Catch idle", new ChannelDuplexHandler() {
+            channel.pipeline().addLast("[INPUT] Idle state handler", new IdleStateHandler(250, 0, 60));
+            channel.pipeline().addLast("[INPUT] Catch idle", new ChannelDuplexHandler() {
                 @Override
                 public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
                     if (evt instanceof IdleStateEvent) {
@@ -118,13 +232,43 @@ final class NettyManager {
             });
 
             // Inbound
-            this.channel.pipeline().addLast("[INPUT] Line splitter", new DelimiterBasedFrameDecoder(512, Unpooled.wrappedBuffer(new byte[]{(byte) '\r', (byte) '\n'})));
-            this.channel.pipeline().addLast("[INPUT] String decoder", new StringDecoder(CharsetUtil.UTF_8));
-            this.channel.pipeline().addLast("[INPUT] Send to client", new SimpleChannelInboundHandler<String>() {
+            channel.pipeline().addLast("[INPUT] Line decoder", new IRCLineDecoder(512));
+            channel.pipeline().addLast("[INPUT] Send to client", new SimpleChannelInboundHandler<byte[]>() {
+                // Lines decoded during the current read, handed off together once it completes
+                private final List<byte[]> lines = new ArrayList<>();
+                private final List<String> inputLines = new ArrayList<>();
+
+                @Override
+                protected void channelRead0(ChannelHandlerContext ctx, byte[] msg) throws Exception {
+                    if (ClientConnection.this.client.getInputListener().isActive()) {
+                        this.inputLines.add(new String(msg, CharsetUtil.UTF_8));
+                    }
+                    if (!ClientConnection.this.client.processPing(msg)) {
+                        this.lines.add(msg);
+                    }
+                }
+
                 @Override
-                protected void channelRead0(ChannelHandlerContext ctx, String msg) throws Exception {
-                    ClientConnection.this.client.getInputListener().queue(msg);
-                    ClientConnection.this.client.processLine(msg);
+                public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+                    this.handOff();
+                    super.channelReadComplete(ctx);
+                }
+
+                @Override
+                public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+                    this.handOff();
+                    super.channelInactive(ctx);
+                }
+
+                private void handOff() {
+                    if (!this.inputLines.isEmpty()) {
+                        ClientConnection.this.client.getInputListener().queueAll(this.inputLines);
+                        this.inputLines.clear();
+                    }
+                    if (!this.lines.isEmpty()) {
+                        ClientConnection.this.client.processLines(this.lines);
+                        this.lines.clear();
+                    }
                 }
             });
 
@@ -135,59 +279,28 @@ final class NettyManager {
                     File keyFile = this.client.getConfig().get(Config.SSL_KEY);
                     String keyPassword = this.client.getConfig().get(Config.SSL_KEY_PASSWORD);
                     SslContext sslContext = SslContextBuilder.forClient().trustManager(new NettyTrustManagerFactory(this.client)).keyManager(keyCertChainFile, keyFile, keyPassword).build();
-                    this.channel.pipeline().addFirst(sslContext.newHandler(this.channel.alloc()));
+                    channel.pipeline().addFirst(sslContext.newHandler(channel.alloc()));
                 } catch (SSLException e) {
                     this.client.getExceptionListener().queue(new KittehConnectionException(e, true));
+                    this.reconnect = false; // Configuration won't fix itself
+                    channel.close();
                     return;
                 }
             }
 
             // Exception handling
-            this.channel.pipeline().addLast("[INPUT] Exception handler", new ChannelInboundHandlerAdapter() {
+            channel.pipeline().addLast("[INPUT] Exception handler", new ChannelInboundHandlerAdapter() {
                 @Override
                 public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
                     ClientConnection.this.handleException(cause);
                 }
             });
-            this.channel.pipeline().addFirst("[OUTPUT] Exception handler", new ChannelOutboundHandlerAdapter() {
+            channel.pipeline().addFirst("[OUTPUT] Exception handler", new ChannelOutboundHandlerAdapter() {
                 @Override
                 public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
                     ClientConnection.this.handleException(cause);
                 }
             });
-
-            // Clean up on disconnect
-            this.channel.closeFuture().addListener(futureListener -> {
-                if (ClientConnection.this.reconnect) {
-                    ClientConnection.this.channel.eventLoop().schedule(ClientConnection.this.client::connect, 5, TimeUnit.SECONDS);
-                }
-                ClientConnection.this.client.getEventManager().callEvent(new ClientConnectionClosedEvent(ClientConnection.this.client, ClientConnection.this.reconnect));
-                removeClientConnection(ClientConnection.this, ClientConnection.this.reconnect);
-            });
-        }
-
-        void sendMessage(@Nonnull String message, boolean priority) {
-            this.sendMessage(message, priority, false);
-        }
-
-        void sendMessage(@Nonnull String message, boolean priority, boolean avoidDuplicates) {
-            if (priority) {
-                this.channel.writeAndFlush(message);
-            } else if (!avoidDuplicates || !this.queue.contains(message)) {
-                this.queue.add(message);
-            }
-        }
-
-        void shutdown(@Nullable String message) {
-            this.shutdown(message, false);
-        }
-
-        void startSending() {
-            this.schedule(true);
-        }
-
-        void updateScheduling() {
-            this.schedule(false);
         }
 
         private void handleException(Throwable thrown) {
@@ -199,29 +312,60 @@ final class NettyManager {
             }
         }
 
-        private void schedule(boolean force) {
-            synchronized (this.scheduledSendingLock) {
-                if (!force && (this.scheduledSending == null)) {
-                    return;
+        @Nonnull
+        private FloodControl newFloodControl() {
+            Config.FloodControlSupplierWrapper wrapper = this.client.getConfig().get(Config.FLOOD_CONTROL);
+            FloodControl floodControl = (wrapper == null) ? null : wrapper.getSupplier().get();
+            return (floodControl == null) ? new TokenBucketFloodControl(1, this.client.getMessageDelay()) : floodControl;
+        }
+
+        private void requestDrain() {
+            if (this.sending && this.drainQueued.compareAndSet(false, true)) {
+                this.channel.eventLoop().execute(this::drain);
+            }
+        }
+
+        /**
+         * Sends as many queued messages as flood control allows, then waits
+         * for flood control if any remain. Runs on the event loop.
+         */
+        private void drain() {
+            this.drainQueued.set(false);
+            if (!this.sending || (this.drainTimer != null)) {
+                return; // Not yet registered, or flood control already has us waiting
+            }
+            final long now = System.currentTimeMillis();
+            boolean written = false;
+            while (true) {
+                OutboundLine message;
+                long wait;
+                synchronized (this.queue) { // Nothing may jump ahead between peek and poll
+                    if ((message = this.queue.peek(now)) == null) {
+                        break;
+                    }
+                    if ((wait = this.floodControl.acquire(now, message.getEncodedLength() + 2)) <= 0) {
+                        this.queue.poll();
+                    }
                 }
-                long delay = 0;
-                if (this.scheduledSending != null) {
-                    delay = this.scheduledSending.getDelay(TimeUnit.MILLISECONDS); // Negligible added delay processing this
-                    this.scheduledSending.cancel(false);
+                if (wait > 0) {
+                    this.drainTimer = this.channel.eventLoop().schedule(() -> {
+                        this.drainTimer = null;
+                        this.drain();
+                    }, wait, TimeUnit.MILLISECONDS);
+                    break;
                 }
-                this.scheduledSending = this.channel.eventLoop().scheduleAtFixedRate(() -> {
-                    String message = ClientConnection.this.queue.poll();
-                    if (message != null) {
-                        ClientConnection.this.channel.writeAndFlush(message);
-                    }
-                }, delay, this.client.getMessageDelay(), TimeUnit.MILLISECONDS);
+                this.channel.write(message);
+                written = true;
+            }
+            if (written) {
+                this.channel.flush();
             }
         }
 
         private void shutdown(@Nullable String message, boolean reconnect) {
             this.reconnect = reconnect;
 
-            this.sendMessage("QUIT" + ((message != null) ? (" :" + message) : ""), true);
+            this.sendMessage(new OutboundLine("QUIT", null, message), true);
             this.channel.close();
         }
     }
@@ -231,6 +375,7 @@ final class NettyManager {
     @Nullable
     private static EventLoopGroup eventLoopGroup;
     private static final Set<ClientConnection> connections = new HashSet<>();
+    private static final Map<SocketAddress, Long> nextConnectAttempts = new HashMap<>();
 
     private NettyManager() {
 
@@ -247,28 +392,48 @@ final class NettyManager {
         }
     }
 
+    /**
+     * Reserves the earliest connection attempt to the client's server no
+     * sooner than the given delay, keeping the client's configured interval
+     * from attempts reserved by any other client.
+     *
+     * @param client client reconnecting
+     * @param delay minimum delay in milliseconds
+     * @return delay until the reserved attempt in milliseconds
+     */
+    private static synchronized long reserveConnectAttempt(@Nonnull InternalClient client, long delay) {
+        int interval = client.getConfig().getNotNull(Config.CONNECT_INTERVAL);
+        if (interval <= 0) {
+            return delay;
+        }
+        final long now = System.currentTimeMillis();
+        nextConnectAttempts.values().removeIf(next -> next <= now);
+        SocketAddress server = client.getConfig().getNotNull(Config.SERVER_ADDRESS);
+        Long next = nextConnectAttempts.get(server);
+        long attempt = Math.max(now + delay, (next == null) ? 0 : next);
+        nextConnectAttempts.put(server, attempt + interval);
+        return attempt - now;
+    }
+
+    /**
+     * Starts connecting a client without waiting for the connection. The
+     * channel's pipeline is set up as it registers, and
+     * {@link ClientConnection#getConnected()} completes once connected.
+     *
+     * @param client client to connect
+     * @return the new connection
+     */
+    @Nonnull
     static synchronized ClientConnection connect(@Nonnull InternalClient client) {
         if (bootstrap == null) {
             bootstrap = new Bootstrap();
             bootstrap.channel(NioSocketChannel.class);
-            bootstrap.handler(new ChannelInitializer<SocketChannel>() {
-                @Override
-                public void initChannel(SocketChannel channel) throws Exception {
-                    // NOOP
-                }
-            });
             bootstrap.option(ChannelOption.TCP_NODELAY, true);
+            bootstrap.option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT);
             eventLoopGroup = new NioEventLoopGroup();
             bootstrap.group(eventLoopGroup);
         }
-        SocketAddress bind = client.getConfig().get(Config.BIND_ADDRESS);
-        SocketAddress server = client.getConfig().getNotNull(Config.SERVER_ADDRESS);
-        ClientConnection clientConnection;
-        if (bind == null) {
-            clientConnection = new ClientConnection(client, bootstrap.connect(server));
-        } else {
-            clientConnection = new ClientConnection(client, bootstrap.connect(server, bind));
-        }
+        ClientConnection clientConnection = new ClientConnection(client, bootstrap.clone());
         connections.add(clientConnection);
         return clientConnection;
     }
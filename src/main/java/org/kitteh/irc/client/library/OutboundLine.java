@@ -0,0 +1,293 @@
+/*
+ * * Copyright (C) 2013-2015 Matt Baxter http://kitteh.org
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kitteh.irc.client.library;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * A line queued to be sent to the server, kept in segments so that it can
+ * be encoded without first concatenating it into a single String.
+ * <p>
+ * The line reads as the command, then the target (if any) after a space,
+ * then the trailing payload (if any) after " :". Equality and hash code
+ * are those of that text, regardless of segmentation or priority.
+ */
+final class OutboundLine implements CharSequence {
+    private final String command;
+    @Nullable
+    private final String target;
+    @Nullable
+    private final String payload;
+    private final MessagePriority priority;
+    @Nullable
+    private final String queueTarget;
+    private int hash;
+    private int encodedLength;
+
+    /**
+     * Creates a raw line, sent as-is, of interactive priority.
+     *
+     * @param line the full line, without line ending
+     */
+    OutboundLine(@Nonnull String line) {
+        this(line, MessagePriority.INTERACTIVE);
+    }
+
+    /**
+     * Creates a raw line, sent as-is.
+     *
+     * @param line the full line, without line ending
+     * @param priority priority when queued
+     */
+    OutboundLine(@Nonnull String line, @Nonnull MessagePriority priority) {
+        this(line, null, null, priority);
+    }
+
+    /**
+     * Creates a line from segments, of interactive priority.
+     *
+     * @param command the command, such as PRIVMSG
+     * @param target the target or null if none
+     * @param payload the trailing parameter or null if none
+     */
+    OutboundLine(@Nonnull String command, @Nullable String target, @Nullable String payload) {
+        this(command, target, payload, MessagePriority.INTERACTIVE);
+    }
+
+    /**
+     * Creates a line from segments.
+     *
+     * @param command the command, such as PRIVMSG
+     * @param target the target or null if none
+     * @param payload the trailing parameter or null if none
+     * @param priority priority when queued
+     */
+    OutboundLine(@Nonnull String command, @Nullable String target, @Nullable String payload, @Nonnull MessagePriority priority) {
+        this.command = command;
+        this.target = target;
+        this.payload = payload;
+        this.priority = priority;
+        this.queueTarget = ((target == null) && (payload == null)) ? getFirstParameter(command) : target;
+    }
+
+    /**
+     * Gets the first parameter of a raw line, unless it is the trailing
+     * parameter.
+     *
+     * @param line raw line
+     * @return the first parameter or null if none
+     */
+    @Nullable
+    private static String getFirstParameter(@Nonnull String line) {
+        int start = line.indexOf(' ');
+        if (start < 0) {
+            return null;
+        }
+        while ((start < line.length()) && (line.charAt(start) == ' ')) {
+            start++;
+        }
+        if ((start == line.length()) || (line.charAt(start) == ':')) {
+            return null;
+        }
+        int end = line.indexOf(' ', start);
+        return line.substring(start, (end < 0) ? line.length() : end);
+    }
+
+    /**
+     * Gets the number of bytes a String takes encoded as UTF-8 the way the
+     * line encoder writes it, one to three bytes for each char.
+     *
+     * @param string string to measure
+     * @return length in bytes
+     */
+    static int getEncodedLength(@Nonnull String string) {
+        int length = string.length();
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (c >= 0x800) {
+                length += 2;
+            } else if (c >= 0x80) {
+                length++;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Gets the length of the line encoded as UTF-8, without line ending.
+     * Servers count their flood limits in these bytes.
+     *
+     * @return length in bytes
+     */
+    int getEncodedLength() {
+        int length = this.encodedLength;
+        if (length == 0) {
+            length = getEncodedLength(this.command);
+            if (this.target != null) {
+                length += 1 + getEncodedLength(this.target);
+            }
+            if (this.payload != null) {
+                length += 2 + getEncodedLength(this.payload);
+            }
+            this.encodedLength = length;
+        }
+        return length;
+    }
+
+    @Nonnull
+    String getCommand() {
+        return this.command;
+    }
+
+    @Nullable
+    String getTarget() {
+        return this.target;
+    }
+
+    @Nullable
+    String getPayload() {
+        return this.payload;
+    }
+
+    /**
+     * Gets the target this line takes turns as in the outbound queue. For
+     * raw lines this is the first parameter, such as the channel of a raw
+     * PRIVMSG or MODE.
+     *
+     * @return the target or null if none
+     */
+    @Nullable
+    String getQueueTarget() {
+        return this.queueTarget;
+    }
+
+    @Nonnull
+    MessagePriority getPriority() {
+        return this.priority;
+    }
+
+    @Override
+    public int length() {
+        int length = this.command.length();
+        if (this.target != null) {
+            length += 1 + this.target.length();
+        }
+        if (this.payload != null) {
+            length += 2 + this.payload.length();
+        }
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0) {
+            throw new StringIndexOutOfBoundsException(index);
+        }
+        int remaining = index;
+        if (remaining < this.command.length()) {
+            return this.command.charAt(remaining);
+        }
+        remaining -= this.command.length();
+        if (this.target != null) {
+            if (remaining == 0) {
+                return ' ';
+            }
+            remaining--;
+            if (remaining < this.target.length()) {
+                return this.target.charAt(remaining);
+            }
+            remaining -= this.target.length();
+        }
+        if (this.payload != null) {
+            if (remaining == 0) {
+                return ' ';
+            }
+            if (remaining == 1) {
+                return ':';
+            }
+            remaining -= 2;
+            if (remaining < this.payload.length()) {
+                return this.payload.charAt(remaining);
+            }
+        }
+        throw new StringIndexOutOfBoundsException(index);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (!(o instanceof OutboundLine)) {
+            return false;
+        }
+        OutboundLine other = (OutboundLine) o;
+        int length = this.length();
+        if ((length != other.length()) || (this.hashCode() != other.hashCode())) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (this.charAt(i) != other.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = this.hash;
+        if (hash == 0) { // Same as String's hash for the same text
+            int length = this.length();
+            for (int i = 0; i < length; i++) {
+                hash = (31 * hash) + this.charAt(i);
+            }
+            this.hash = hash;
+        }
+        return hash;
+    }
+
+    @Nonnull
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return this.toString().subSequence(start, end);
+    }
+
+    @Nonnull
+    @Override
+    public String toString() {
+        if ((this.target == null) && (this.payload == null)) {
+            return this.command;
+        }
+        StringBuilder builder = new StringBuilder(this.length()).append(this.command);
+        if (this.target != null) {
+            builder.append(' ').append(this.target);
+        }
+        if (this.payload != null) {
+            builder.append(" :").append(this.payload);
+        }
+        return builder.toString();
+    }
+}
\ No newline at end of file
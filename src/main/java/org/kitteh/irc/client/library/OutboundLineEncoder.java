@@ -0,0 +1,75 @@
+/*
+ * * Copyright (C) 2013-2015 Matt Baxter http://kitteh.org
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kitteh.irc.client.library;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToByteEncoder;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Encodes {@link OutboundLine}s, segment by segment, into a single buffer
+ * from the channel's allocator, line ending included.
+ */
+final class OutboundLineEncoder extends MessageToByteEncoder<OutboundLine> {
+    private final Listener<String> outputListener;
+
+    /**
+     * Creates an encoder.
+     *
+     * @param outputListener listener informed of each line sent
+     */
+    OutboundLineEncoder(@Nonnull Listener<String> outputListener) {
+        super(OutboundLine.class, true);
+        this.outputListener = outputListener;
+    }
+
+    @Override
+    protected ByteBuf allocateBuffer(ChannelHandlerContext ctx, OutboundLine msg, boolean preferDirect) throws Exception {
+        return ctx.alloc().ioBuffer(msg.getEncodedLength() + 2);
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, OutboundLine msg, ByteBuf out) throws Exception {
+        if (this.outputListener.isActive()) {
+            this.outputListener.queue(msg.toString());
+        }
+        ByteBufUtil.writeUtf8(out, msg.getCommand());
+        String target = msg.getTarget();
+        if (target != null) {
+            out.writeByte(' ');
+            ByteBufUtil.writeUtf8(out, target);
+        }
+        String payload = msg.getPayload();
+        if (payload != null) {
+            out.writeByte(' ');
+            out.writeByte(':');
+            ByteBufUtil.writeUtf8(out, payload);
+        }
+        out.writeByte('\r');
+        out.writeByte('\n');
+    }
+}
\ No newline at end of file
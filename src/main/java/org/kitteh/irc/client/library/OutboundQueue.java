@@ -0,0 +1,385 @@
+/*
+ * * Copyright (C) 2013-2015 Matt Baxter http://kitteh.org
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kitteh.irc.client.library;
+
+import org.kitteh.irc.client.library.exception.KittehQueueFullException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Queue of lines waiting on flood control.
+ * <p>
+ * Lines are taken from the highest {@link MessagePriority} with anything
+ * waiting. Within a priority, each target has its own queue and targets
+ * are served round-robin, one line at a time. Raw lines take turns by
+ * their first parameter, such as a channel or nick. A count of each distinct
+ * line waiting is kept alongside, so duplicate checks are constant time
+ * regardless of backlog. Once the queue holds its capacity, the
+ * {@link QueueOverflowPolicy} decides what gives. {@link
+ * MessagePriority#CONTROL} lines are the client's own protocol traffic and
+ * neither count towards capacity nor are ever dropped. Lines may expire a set
+ * time after being queued, and are then skipped. The queue belongs to the
+ * client rather than a connection, so lines survive reconnects. All
+ * methods lock on the queue itself, which callers may also hold to peek
+ * and poll atomically.
+ */
+final class OutboundQueue {
+    private static final class Queued {
+        private final OutboundLine line;
+        private final long sequence;
+        private final long queuedAt;
+
+        private Queued(@Nonnull OutboundLine line, long sequence, long queuedAt) {
+            this.line = line;
+            this.sequence = sequence;
+            this.queuedAt = queuedAt;
+        }
+    }
+
+    private static final class TargetQueue {
+        @Nullable
+        private final String target;
+        private final ArrayDeque<Queued> lines = new ArrayDeque<>();
+
+        private TargetQueue(@Nullable String target) {
+            this.target = target;
+        }
+    }
+
+    private static final class PriorityClass {
+        private final Map<String, TargetQueue> targets = new HashMap<>();
+        private final ArrayDeque<TargetQueue> rotation = new ArrayDeque<>();
+
+        private void add(@Nonnull Queued queued) {
+            TargetQueue targetQueue = this.targets.get(queued.line.getQueueTarget());
+            if (targetQueue == null) {
+                targetQueue = new TargetQueue(queued.line.getQueueTarget());
+                this.targets.put(queued.line.getQueueTarget(), targetQueue);
+                this.rotation.addLast(targetQueue);
+            }
+            targetQueue.lines.addLast(queued);
+        }
+
+        private boolean isEmpty() {
+            return this.rotation.isEmpty();
+        }
+
+        @Nullable
+        private Queued peek() {
+            TargetQueue targetQueue = this.rotation.peekFirst();
+            return (targetQueue == null) ? null : targetQueue.lines.peekFirst();
+        }
+
+        @Nullable
+        private OutboundLine poll() {
+            TargetQueue targetQueue = this.rotation.pollFirst();
+            if (targetQueue == null) {
+                return null;
+            }
+            OutboundLine line = targetQueue.lines.pollFirst().line;
+            if (targetQueue.lines.isEmpty()) {
+                this.targets.remove(targetQueue.target);
+            } else {
+                this.rotation.addLast(targetQueue);
+            }
+            return line;
+        }
+
+        @Nullable
+        private OutboundLine removeOldest() {
+            TargetQueue oldest = null;
+            for (TargetQueue targetQueue : this.rotation) {
+                if ((oldest == null) || (targetQueue.lines.peekFirst().sequence < oldest.lines.peekFirst().sequence)) {
+                    oldest = targetQueue;
+                }
+            }
+            return (oldest == null) ? null : this.removed(oldest, oldest.lines.pollFirst());
+        }
+
+        @Nullable
+        private OutboundLine removeNewest() {
+            TargetQueue newest = null;
+            for (TargetQueue targetQueue : this.rotation) {
+                if ((newest == null) || (targetQueue.lines.peekLast().sequence > newest.lines.peekLast().sequence)) {
+                    newest = targetQueue;
+                }
+            }
+            return (newest == null) ? null : this.removed(newest, newest.lines.pollLast());
+        }
+
+        private void removeQueuedBefore(long time, @Nonnull Consumer<OutboundLine> removed) {
+            Iterator<TargetQueue> iterator = this.rotation.iterator();
+            while (iterator.hasNext()) {
+                TargetQueue targetQueue = iterator.next();
+                targetQueue.lines.removeIf(queued -> {
+                    if (queued.queuedAt < time) {
+                        removed.accept(queued.line);
+                        return true;
+                    }
+                    return false;
+                });
+                if (targetQueue.lines.isEmpty()) {
+                    this.targets.remove(targetQueue.target);
+                    iterator.remove();
+                }
+            }
+        }
+
+        @Nonnull
+        private OutboundLine removed(@Nonnull TargetQueue targetQueue, @Nonnull Queued queued) {
+            if (targetQueue.lines.isEmpty()) {
+                this.targets.remove(targetQueue.target);
+                this.rotation.remove(targetQueue);
+            }
+            return queued.line;
+        }
+    }
+
+    private final PriorityClass[] priorities = new PriorityClass[MessagePriority.values().length];
+    private final Map<OutboundLine, Integer> counts = new HashMap<>();
+    private final int capacity;
+    private final QueueOverflowPolicy overflowPolicy;
+    private final long expiry;
+    private final int highWatermark;
+    @Nullable
+    private final IntConsumer highWatermarkReached;
+    private boolean aboveHighWatermark;
+    private long sequence;
+    private int size;
+    private int controlSize;
+
+    /**
+     * Creates an unbounded queue without expiry.
+     */
+    OutboundQueue() {
+        this(Integer.MAX_VALUE, QueueOverflowPolicy.REJECT, 0);
+    }
+
+    /**
+     * Creates a queue without a high watermark.
+     *
+     * @param capacity maximum number of lines held, not counting CONTROL
+     * @param overflowPolicy what to do when adding to a full queue
+     * @param expiry milliseconds after being queued that a line expires,
+     * or 0 for never
+     */
+    OutboundQueue(int capacity, @Nonnull QueueOverflowPolicy overflowPolicy, long expiry) {
+        this(capacity, overflowPolicy, expiry, 0, null);
+    }
+
+    /**
+     * Creates a queue.
+     *
+     * @param capacity maximum number of lines held, not counting CONTROL
+     * @param overflowPolicy what to do when adding to a full queue
+     * @param expiry milliseconds after being queued that a line expires,
+     * or 0 for never
+     * @param highWatermark size at which to notify, or 0 for never
+     * @param highWatermarkReached notified of the size each time the queue
+     * reaches the high watermark, after first draining to half of it. Called
+     * while holding the queue's lock, so must only hand off
+     */
+    OutboundQueue(int capacity, @Nonnull QueueOverflowPolicy overflowPolicy, long expiry, int highWatermark, @Nullable IntConsumer highWatermarkReached) {
+        for (int i = 0; i < this.priorities.length; i++) {
+            this.priorities[i] = new PriorityClass();
+        }
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        this.expiry = expiry;
+        this.highWatermark = highWatermark;
+        this.highWatermarkReached = highWatermarkReached;
+    }
+
+    /**
+     * Adds a line, making room first if the queue is full. CONTROL lines
+     * are always added.
+     *
+     * @param line line to add
+     * @return the line dropped to make room, which is the given line if it
+     * was not added, or null if nothing was dropped
+     * @throws KittehQueueFullException if full and rejecting new lines
+     */
+    @Nullable
+    synchronized OutboundLine add(@Nonnull OutboundLine line) {
+        OutboundLine dropped = null;
+        if ((line.getPriority() != MessagePriority.CONTROL) && ((this.size - this.controlSize) >= this.capacity)) {
+            switch (this.overflowPolicy) {
+                case DROP_NEWEST:
+                    return line;
+                case DROP_OLDEST:
+                    dropped = this.removeOldest();
+                    break;
+                case DROP_LOWEST_PRIORITY:
+                    dropped = this.removeLowestPriority(line.getPriority());
+                    if (dropped == null) {
+                        return line;
+                    }
+                    break;
+                default:
+                    throw new KittehQueueFullException(this.capacity);
+            }
+            this.removed(dropped);
+        }
+        this.priorities[line.getPriority().ordinal()].add(new Queued(line, this.sequence++, System.currentTimeMillis()));
+        this.counts.merge(line, 1, Integer::sum);
+        this.size++;
+        if (line.getPriority() == MessagePriority.CONTROL) {
+            this.controlSize++;
+        }
+        if ((this.highWatermark > 0) && (this.size >= this.highWatermark) && !this.aboveHighWatermark) {
+            this.aboveHighWatermark = true;
+            if (this.highWatermarkReached != null) {
+                this.highWatermarkReached.accept(this.size);
+            }
+        }
+        return dropped;
+    }
+
+    /**
+     * Removes all lines.
+     */
+    synchronized void clear() {
+        for (int i = 0; i < this.priorities.length; i++) {
+            this.priorities[i] = new PriorityClass();
+        }
+        this.counts.clear();
+        this.size = 0;
+        this.controlSize = 0;
+        this.aboveHighWatermark = false;
+    }
+
+    synchronized boolean contains(@Nonnull OutboundLine line) {
+        return this.counts.containsKey(line);
+    }
+
+    synchronized boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * Gets the next line to send, first discarding any expired lines ahead
+     * of it.
+     *
+     * @param now current time in milliseconds
+     * @return the next line or null if none are waiting
+     */
+    @Nullable
+    synchronized OutboundLine peek(long now) {
+        for (PriorityClass priority : this.priorities) {
+            Queued queued;
+            while ((queued = priority.peek()) != null) {
+                if ((this.expiry <= 0) || ((now - queued.queuedAt) < this.expiry)) {
+                    return queued.line;
+                }
+                this.removed(priority.poll());
+            }
+        }
+        return null;
+    }
+
+    @Nullable
+    synchronized OutboundLine poll() {
+        for (PriorityClass priority : this.priorities) {
+            OutboundLine line = priority.poll();
+            if (line != null) {
+                this.removed(line);
+                return line;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes all lines of a priority.
+     *
+     * @param priority priority to remove
+     */
+    synchronized void removePriority(@Nonnull MessagePriority priority) {
+        this.priorities[priority.ordinal()].removeQueuedBefore(Long.MAX_VALUE, this::removed);
+    }
+
+    /**
+     * Removes all lines queued before the given time.
+     *
+     * @param time time in milliseconds
+     */
+    synchronized void removeQueuedBefore(long time) {
+        for (PriorityClass priority : this.priorities) {
+            priority.removeQueuedBefore(time, this::removed);
+        }
+    }
+
+    synchronized int size() {
+        return this.size;
+    }
+
+    @Nonnull
+    private OutboundLine removeOldest() {
+        PriorityClass oldest = null;
+        long oldestSequence = Long.MAX_VALUE;
+        for (int i = MessagePriority.CONTROL.ordinal() + 1; i < this.priorities.length; i++) { // CONTROL is never dropped
+            PriorityClass priority = this.priorities[i];
+            for (TargetQueue targetQueue : priority.rotation) {
+                long sequence = targetQueue.lines.peekFirst().sequence;
+                if (sequence < oldestSequence) {
+                    oldest = priority;
+                    oldestSequence = sequence;
+                }
+            }
+        }
+        return oldest.removeOldest(); // Never null, the queue is full of other lines
+    }
+
+    /**
+     * Drops the newest line of the lowest priority waiting, if that
+     * priority is lower than the incoming line's.
+     */
+    @Nullable
+    private OutboundLine removeLowestPriority(@Nonnull MessagePriority incoming) {
+        for (int i = this.priorities.length - 1; i > incoming.ordinal(); i--) {
+            if (!this.priorities[i].isEmpty()) {
+                return this.priorities[i].removeNewest();
+            }
+        }
+        return null;
+    }
+
+    private void removed(@Nonnull OutboundLine line) {
+        this.counts.computeIfPresent(line, (key, count) -> (count == 1) ? null : (count - 1));
+        this.size--;
+        if (line.getPriority() == MessagePriority.CONTROL) {
+            this.controlSize--;
+        }
+        if (this.size <= (this.highWatermark / 2)) {
+            this.aboveHighWatermark = false;
+        }
+    }
+}
\ No newline at end of file
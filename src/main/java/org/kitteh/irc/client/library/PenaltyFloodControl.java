@@ -0,0 +1,99 @@
+/*
+ * * Copyright (C) 2013-2015 Matt Baxter http://kitteh.org
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kitteh.irc.client.library;
+
+import org.kitteh.irc.client.library.util.Sanity;
+
+/**
+ * Penalty based flood control, mirroring how servers account for client
+ * messages. Every line sent moves a timer forward by a penalty. Lines may
+ * be sent while that timer is no further ahead of the current time than
+ * the allowed window.
+ * <p>
+ * RFC 1459 describes a 2 second penalty and a 10 second window. Many
+ * servers also charge more for longer lines.
+ */
+public final class PenaltyFloodControl implements FloodControl {
+    private final int bytesPerPenalty;
+    private final long penaltyMillis;
+    private final long windowMillis;
+    private long timer;
+
+    /**
+     * Creates penalty based flood control with a fixed penalty per line.
+     *
+     * @param penaltyMillis milliseconds added per line
+     * @param windowMillis milliseconds the timer may run ahead
+     * @throws IllegalArgumentException if penalty is less than 1 or window
+     * is negative
+     */
+    public PenaltyFloodControl(long penaltyMillis, long windowMillis) {
+        this(penaltyMillis, 0, windowMillis);
+    }
+
+    /**
+     * Creates penalty based flood control with a penalty per line, plus the
+     * same penalty again per given number of bytes.
+     *
+     * @param penaltyMillis milliseconds added per line
+     * @param bytesPerPenalty bytes per additional penalty, or 0 for no
+     * length-based penalty
+     * @param windowMillis milliseconds the timer may run ahead
+     * @throws IllegalArgumentException if penalty is less than 1 or either
+     * of the other values is negative
+     */
+    public PenaltyFloodControl(long penaltyMillis, int bytesPerPenalty, long windowMillis) {
+        Sanity.truthiness(penaltyMillis > 0, "Penalty must be at least 1");
+        Sanity.truthiness(bytesPerPenalty >= 0, "Bytes per penalty cannot be negative");
+        Sanity.truthiness(windowMillis >= 0, "Window cannot be negative");
+        this.penaltyMillis = penaltyMillis;
+        this.bytesPerPenalty = bytesPerPenalty;
+        this.windowMillis = windowMillis;
+    }
+
+    @Override
+    public long acquire(long now, int length) {
+        long timer = Math.max(this.timer, now);
+        long wait = (timer - now) - this.windowMillis;
+        if (wait > 0) {
+            return wait;
+        }
+        long penalties = 1;
+        if (this.bytesPerPenalty > 0) {
+            penalties += length / this.bytesPerPenalty;
+        }
+        this.timer = timer + (penalties * this.penaltyMillis);
+        return 0;
+    }
+
+    @Override
+    public long getRecoveryMillis(long now) {
+        return Math.max(0, this.timer - now);
+    }
+
+    @Override
+    public void spend(long now, long recoveryMillis) {
+        this.timer = Math.max(this.timer, now + recoveryMillis);
+    }
+}
\ No newline at end of file
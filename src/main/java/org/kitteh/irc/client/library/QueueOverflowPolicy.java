@@ -0,0 +1,52 @@
+/*
+ * * Copyright (C) 2013-2015 Matt Baxter http://kitteh.org
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kitteh.irc.client.library;
+
+/**
+ * What happens to a message sent while the outbound queue is full.
+ *
+ * @see ClientBuilder#outboundQueueCapacity(int, QueueOverflowPolicy)
+ */
+public enum QueueOverflowPolicy {
+    /**
+     * Refuses the new message, throwing a
+     * {@link org.kitteh.irc.client.library.exception.KittehQueueFullException}
+     * to the sender.
+     */
+    REJECT,
+    /**
+     * Discards the message that has been waiting longest to make room.
+     */
+    DROP_OLDEST,
+    /**
+     * Silently discards the new message.
+     */
+    DROP_NEWEST,
+    /**
+     * Discards the newest message of the lowest {@link MessagePriority}
+     * waiting to make room, or the new message if nothing waiting has
+     * lower priority than it.
+     */
+    DROP_LOWEST_PRIORITY
+}
\ No newline at end of file
@@ -0,0 +1,47 @@
+/*
+ * * Copyright (C) 2013-2015 Matt Baxter http://kitteh.org
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kitteh.irc.client.library;
+
+/**
+ * Decides how long the client waits before reconnecting after losing its
+ * connection, and when to give up.
+ * <p>
+ * Attempts are counted from the last successful connection, so a policy
+ * may back off while a server stays unreachable. Implementations are
+ * shared by every connection of a client and should be stateless.
+ *
+ * @see BackoffReconnectPolicy
+ */
+public interface ReconnectPolicy {
+    /**
+     * Gets the delay before the next connection attempt.
+     *
+     * @param attempt the upcoming attempt, starting at 1 after each
+     * successful connection
+     * @param previousDelay the delay returned for the previous attempt, or
+     * 0 for the first attempt
+     * @return milliseconds to wait, or a negative value to stop reconnecting
+     */
+    long getDelay(int attempt, long previousDelay);
+}
\ No newline at end of file
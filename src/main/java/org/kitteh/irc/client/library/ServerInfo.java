@@ -113,6 +113,15 @@ public interface ServerInfo {
     @Nullable
     String getServerAddress();
 
+    /**
+     * Gets the maximum number of targets accepted per command, from
+     * ISUPPORT TARGMAX. Commands without a stated limit are absent.
+     *
+     * @return a map of upper case command names to limits
+     */
+    @Nonnull
+    Map<String, Integer> getTargetLimits();
+
     /**
      * Gets the version of the IRCd.
      *
@@ -0,0 +1,99 @@
+/*
+ * * Copyright (C) 2013-2015 Matt Baxter http://kitteh.org
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kitteh.irc.client.library;
+
+import org.kitteh.irc.client.library.util.Sanity;
+
+/**
+ * Token bucket flood control. The bucket holds up to a set number of
+ * tokens, refilling one token per interval. Each line costs one token, plus
+ * optionally one more token per so many characters.
+ * <p>
+ * A capacity of 1 sends one line per refill interval, which is how the
+ * client's message delay is applied.
+ */
+public final class TokenBucketFloodControl implements FloodControl {
+    private final int bytesPerToken;
+    private final int capacity;
+    private final long refillMillis;
+    private long fullAt; // When the bucket will have refilled completely
+
+    /**
+     * Creates a token bucket where each line costs one token.
+     *
+     * @param capacity maximum tokens, which is the burst allowance
+     * @param refillMillis milliseconds to regain one token
+     * @throws IllegalArgumentException if either value is less than 1
+     */
+    public TokenBucketFloodControl(int capacity, long refillMillis) {
+        this(capacity, refillMillis, 0);
+    }
+
+    /**
+     * Creates a token bucket where each line costs one token, plus one
+     * token per given number of characters.
+     *
+     * @param capacity maximum tokens, which is the burst allowance
+     * @param refillMillis milliseconds to regain one token
+     * @param bytesPerToken characters per additional token, or 0 for no
+     * length-based cost
+     * @throws IllegalArgumentException if capacity or refillMillis are less
+     * than 1 or bytesPerToken is negative
+     */
+    public TokenBucketFloodControl(int capacity, long refillMillis, int bytesPerToken) {
+        Sanity.truthiness(capacity > 0, "Capacity must be at least 1");
+        Sanity.truthiness(refillMillis > 0, "Refill time must be at least 1");
+        Sanity.truthiness(bytesPerToken >= 0, "Bytes per token cannot be negative");
+        this.capacity = capacity;
+        this.refillMillis = refillMillis;
+        this.bytesPerToken = bytesPerToken;
+    }
+
+    @Override
+    public long acquire(long now, int length) {
+        int tokens = 1;
+        if (this.bytesPerToken > 0) {
+            tokens = Math.min(this.capacity, tokens + (length / this.bytesPerToken)); // Never more than could ever be held
+        }
+        long start = Math.max(this.fullAt, now);
+        long wait = (start + (tokens * this.refillMillis)) - (now + (this.capacity * this.refillMillis));
+        if (wait > 0) {
+            return wait;
+        }
+        this.fullAt = start + (tokens * this.refillMillis);
+        return 0;
+    }
+
+    @Override
+    public long getRecoveryMillis(long now) {
+        return Math.max(0, this.fullAt - now);
+    }
+
+    @Override
+    public void spend(long now, long recoveryMillis) {
+        // Never owe more than an empty bucket
+        long recovery = Math.min(recoveryMillis, this.capacity * this.refillMillis);
+        this.fullAt = Math.max(this.fullAt, now + recovery);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,77 @@
+/*
+ * * Copyright (C) 2013-2015 Matt Baxter http://kitteh.org
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kitteh.irc.client.library.event.client;
+
+import org.kitteh.irc.client.library.Client;
+import org.kitteh.irc.client.library.event.abstractbase.ClientEventBase;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The {@link Client} has rejoined its channels after reconnecting, and
+ * received the user list of each channel it got back into. Channels with
+ * no reply within a minute count as failed.
+ */
+public class ClientResynchronizedEvent extends ClientEventBase {
+    private final long duration;
+    private final List<String> failedChannels;
+
+    /**
+     * Constructs the event.
+     *
+     * @param client client for which this is occurring
+     * @param duration milliseconds from registration to resynchronization
+     * @param failedChannels channels the server refused to rejoin or which
+     * got no reply in time
+     */
+    public ClientResynchronizedEvent(@Nonnull Client client, long duration, @Nonnull List<String> failedChannels) {
+        super(client);
+        this.duration = duration;
+        this.failedChannels = Collections.unmodifiableList(new ArrayList<>(failedChannels));
+    }
+
+    /**
+     * Gets how long resynchronizing took, from registration with the server
+     * until the last channel was back in sync.
+     *
+     * @return duration in milliseconds
+     */
+    public long getDuration() {
+        return this.duration;
+    }
+
+    /**
+     * Gets the channels which could not be rejoined, or which got no reply
+     * in time.
+     *
+     * @return unmodifiable list of channel names
+     */
+    @Nonnull
+    public List<String> getFailedChannels() {
+        return this.failedChannels;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,51 @@
+/*
+ * * Copyright (C) 2013-2015 Matt Baxter http://kitteh.org
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kitteh.irc.client.library.exception;
+
+/**
+ * Thrown when sending a message while the outbound queue is full and
+ * configured to reject new messages.
+ */
+public class KittehQueueFullException extends IllegalStateException {
+    private final int capacity;
+
+    /**
+     * Constructs the rejection.
+     *
+     * @param capacity capacity of the full queue
+     */
+    public KittehQueueFullException(int capacity) {
+        super("Outbound queue is full at " + capacity + " messages");
+        this.capacity = capacity;
+    }
+
+    /**
+     * Gets the capacity of the queue which was full.
+     *
+     * @return queue capacity
+     */
+    public int getCapacity() {
+        return this.capacity;
+    }
+}
\ No newline at end of file
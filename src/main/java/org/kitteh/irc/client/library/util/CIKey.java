@@ -0,0 +1,106 @@
+/*
+ * * Copyright (C) 2013-2015 Matt Baxter http://kitteh.org
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kitteh.irc.client.library.util;
+
+import org.kitteh.irc.client.library.CaseMapping;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * A case insensitive key by a {@link CaseMapping}, hashed and compared in
+ * place so lookups never build lowercased Strings. The hash is computed
+ * once, so stored keys never rehash. Holders of a String used as a key
+ * again and again, such as a channel's name, can keep its key for {@link
+ * CIKeyMap#getByKey(CIKey)} and friends.
+ */
+public final class CIKey {
+    // Only ever changed on lookup probes, which are never stored or shared
+    private CaseMapping caseMapping;
+    private int hash;
+    private String key;
+
+    /**
+     * Constructs a key.
+     *
+     * @param key the key as given
+     * @param caseMapping case mapping by which keys compare
+     * @throws IllegalArgumentException if either argument is null
+     */
+    public CIKey(@Nonnull String key, @Nonnull CaseMapping caseMapping) {
+        Sanity.nullCheck(key, "Key cannot be null");
+        Sanity.nullCheck(caseMapping, "Case mapping cannot be null");
+        this.set(key, caseMapping);
+    }
+
+    // Probe
+    CIKey() {
+    }
+
+    @Nonnull
+    CIKey set(@Nonnull String key, @Nonnull CaseMapping caseMapping) {
+        this.caseMapping = caseMapping;
+        this.hash = caseMapping.lowerCaseHashCode(key);
+        this.key = key;
+        return this;
+    }
+
+    void clear() {
+        this.caseMapping = null;
+        this.key = null;
+    }
+
+    /**
+     * Gets the case mapping by which this key compares.
+     *
+     * @return case mapping
+     */
+    @Nonnull
+    public CaseMapping getCaseMapping() {
+        return this.caseMapping;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (!(o instanceof CIKey)) {
+            return false;
+        }
+        CIKey other = (CIKey) o;
+        return (this.hash == other.hash) && this.caseMapping.areEqualIgnoringCase(this.key, other.key);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.hash;
+    }
+
+    @Nonnull
+    @Override
+    public String toString() {
+        return this.key;
+    }
+}
\ No newline at end of file
@@ -28,21 +28,28 @@ import org.kitteh.irc.client.library.Client;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.AbstractCollection;
 import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 /**
  * A thread-safe hash map with case insensitive keys by a {@link Client}'s
  * {@link CaseMapping}.
  */
 public class CIKeyMap<Value> implements Map<String, Value> {
-    private final Client client;
-    private CaseMapping lastCaseMapping;
-    private final Map<String, Pair<String, Value>> map = new ConcurrentHashMap<>();
+    // Values paired with the key as last put, which the map's key may not be
+    private final CIStore<Pair<String, Value>> store;
+    private final Set<String> keySet = new KeySet();
+    private final Collection<Value> values = new Values();
+    private final Set<Entry<String, Value>> entrySet = new EntrySet();
 
     /**
      * Constructs a map tied to a client.
@@ -50,7 +57,7 @@ public class CIKeyMap<Value> implements Map<String, Value> {
      * @param client the client to which this map is tied
      */
     public CIKeyMap(Client client) {
-        this.client = client;
+        this.store = new CIStore<>(client, Pair::getLeft);
     }
 
     /**
@@ -61,35 +68,31 @@ public class CIKeyMap<Value> implements Map<String, Value> {
      * @return lower cased input
      */
     @Nonnull
-    protected final synchronized String toLowerCase(@Nonnull String input) {
-        CaseMapping caseMapping = this.client.getServerInfo().getCaseMapping();
-        if (caseMapping != this.lastCaseMapping) {
-            Set<Entry<String, Value>> entrySet = this.entrySet();
-            this.lastCaseMapping = caseMapping;
-            this.map.clear();
-            entrySet.forEach(entry -> this.put(entry.getKey(), entry.getValue()));
-        }
-        return caseMapping.toLowerCase(input);
+    protected final String toLowerCase(@Nonnull String input) {
+        return this.store.read().getCaseMapping().toLowerCase(input);
     }
 
     @Override
     public int size() {
-        return this.map.size();
+        return this.store.read().getMap().size();
     }
 
     @Override
     public boolean isEmpty() {
-        return this.map.isEmpty();
+        return this.store.read().getMap().isEmpty();
     }
 
     @Override
     public boolean containsKey(@Nullable Object key) {
-        return (key instanceof String) && this.map.containsKey(this.toLowerCase((String) key));
+        if (key instanceof String) {
+            return this.store.read().get((String) key) != null;
+        }
+        return false;
     }
 
     @Override
     public boolean containsValue(@Nullable Object value) {
-        for (Pair<String, Value> pair : this.map.values()) {
+        for (Pair<String, Value> pair : this.store.read().getMap().values()) {
             if ((value == null) ? (pair.getRight() == null) : value.equals(pair.getRight())) {
                 return true;
             }
@@ -100,29 +103,24 @@ public class CIKeyMap<Value> implements Map<String, Value> {
     @Nullable
     @Override
     public Value get(@Nullable Object key) {
-        if (key instanceof String) {
-            Pair<String, Value> pair = this.map.get(this.toLowerCase((String) key));
-            return (pair == null) ? null : pair.getRight();
-        }
-        return null;
+        Pair<String, Value> pair = this.getPair(key);
+        return (pair == null) ? null : pair.getRight();
     }
 
     @Nullable
     @Override
     public Value put(@Nonnull String key, @Nullable Value value) {
         Sanity.nullCheck(key, "Key cannot be null");
-        Pair<String, Value> pair = this.map.put(this.toLowerCase(key), new Pair<>(key, value));
+        Pair<String, Value> newPair = new Pair<>(key, value);
+        Pair<String, Value> pair = this.store.write(epoch -> epoch.getMap().put(epoch.key(key), newPair));
         return (pair == null) ? null : pair.getRight();
     }
 
     @Nullable
     @Override
     public Value remove(@Nullable Object key) {
-        if (key instanceof String) {
-            Pair<String, Value> pair = this.map.remove(this.toLowerCase((String) key));
-            return (pair == null) ? null : pair.getRight();
-        }
-        return null;
+        Pair<String, Value> pair = this.removePair(key);
+        return (pair == null) ? null : pair.getRight();
     }
 
     @Override
@@ -133,39 +131,322 @@ public class CIKeyMap<Value> implements Map<String, Value> {
 
     @Override
     public void clear() {
-        this.map.clear();
+        this.store.write(epoch -> {
+            epoch.getMap().clear();
+            return null;
+        });
+    }
+
+    @Nullable
+    @Override
+    public Value putIfAbsent(@Nonnull String key, @Nullable Value value) {
+        Sanity.nullCheck(key, "Key cannot be null");
+        Pair<String, Value> newPair = new Pair<>(key, value);
+        Pair<String, Value> pair = this.store.write(epoch -> epoch.getMap().putIfAbsent(epoch.key(key), newPair));
+        return (pair == null) ? null : pair.getRight();
+    }
+
+    /**
+     * Computes a value for the key if absent, atomically for the current
+     * {@link CaseMapping}. A case mapping change waits until done.
+     *
+     * @param key key to compute for
+     * @param mappingFunction function computing the value, null for none
+     * @return the current value, or null if none
+     */
+    @Nullable
+    @Override
+    public Value computeIfAbsent(@Nonnull String key, @Nonnull Function<? super String, ? extends Value> mappingFunction) {
+        Sanity.nullCheck(key, "Key cannot be null");
+        Sanity.nullCheck(mappingFunction, "Function cannot be null");
+        Pair<String, Value> pair = this.store.write(epoch -> epoch.getMap().computeIfAbsent(epoch.key(key), k -> {
+            Value value = mappingFunction.apply(key);
+            return (value == null) ? null : new Pair<>(key, value);
+        }));
+        return (pair == null) ? null : pair.getRight();
+    }
+
+    /**
+     * Computes a new value for the key if present, atomically for the
+     * current {@link CaseMapping}, keeping the key as last put. A case
+     * mapping change waits until done.
+     *
+     * @param key key to compute for
+     * @param remappingFunction function computing the value, null to remove
+     * @return the new value, or null if none
+     */
+    @Nullable
+    @Override
+    public Value computeIfPresent(@Nonnull String key, @Nonnull BiFunction<? super String, ? super Value, ? extends Value> remappingFunction) {
+        Sanity.nullCheck(key, "Key cannot be null");
+        Sanity.nullCheck(remappingFunction, "Function cannot be null");
+        Pair<String, Value> pair = this.store.write(epoch -> epoch.getMap().computeIfPresent(epoch.key(key), (k, old) -> {
+            Value value = remappingFunction.apply(old.getLeft(), old.getRight());
+            return (value == null) ? null : new Pair<>(old.getLeft(), value);
+        }));
+        return (pair == null) ? null : pair.getRight();
+    }
+
+    /**
+     * Computes a new value for the key, atomically for the current {@link
+     * CaseMapping}. A case mapping change waits until done.
+     *
+     * @param key key to compute for
+     * @param remappingFunction function computing the value, null to remove
+     * @return the new value, or null if none
+     */
+    @Nullable
+    @Override
+    public Value compute(@Nonnull String key, @Nonnull BiFunction<? super String, ? super Value, ? extends Value> remappingFunction) {
+        Sanity.nullCheck(key, "Key cannot be null");
+        Sanity.nullCheck(remappingFunction, "Function cannot be null");
+        Pair<String, Value> pair = this.store.write(epoch -> epoch.getMap().compute(epoch.key(key), (k, old) -> {
+            Value value = remappingFunction.apply(key, (old == null) ? null : old.getRight());
+            return (value == null) ? null : new Pair<>(key, value);
+        }));
+        return (pair == null) ? null : pair.getRight();
+    }
+
+    /**
+     * Gets the value for a key kept by the caller.
+     *
+     * @param key key to look up
+     * @return the value, or null if none
+     */
+    @Nullable
+    public Value getByKey(@Nonnull CIKey key) {
+        Sanity.nullCheck(key, "Key cannot be null");
+        CIStore.Epoch<Pair<String, Value>> epoch = this.store.read();
+        Pair<String, Value> pair = epoch.getMap().get(epoch.key(key));
+        return (pair == null) ? null : pair.getRight();
+    }
+
+    /**
+     * Puts a value for a key kept by the caller, which this map may keep
+     * too.
+     *
+     * @param key key to put for
+     * @param value value to put
+     * @return the previous value, or null if none
+     */
+    @Nullable
+    public Value putByKey(@Nonnull CIKey key, @Nullable Value value) {
+        Sanity.nullCheck(key, "Key cannot be null");
+        Pair<String, Value> newPair = new Pair<>(key.toString(), value);
+        Pair<String, Value> pair = this.store.write(epoch -> epoch.getMap().put(epoch.key(key), newPair));
+        return (pair == null) ? null : pair.getRight();
+    }
+
+    /**
+     * Removes the value for a key kept by the caller.
+     *
+     * @param key key to remove
+     * @return the removed value, or null if none
+     */
+    @Nullable
+    public Value removeByKey(@Nonnull CIKey key) {
+        Sanity.nullCheck(key, "Key cannot be null");
+        Pair<String, Value> pair = this.store.write(epoch -> epoch.getMap().remove(epoch.key(key)));
+        return (pair == null) ? null : pair.getRight();
     }
 
     /**
-     * Gets an UNCHANGING representation of the keys.
+     * Performs the given action for each entry, without copying. Iteration
+     * is weakly consistent, as with the views.
+     *
+     * @param action action to perform
+     */
+    @Override
+    public void forEach(@Nonnull BiConsumer<? super String, ? super Value> action) {
+        Sanity.nullCheck(action, "Action cannot be null");
+        this.store.read().getMap().values().forEach(pair -> action.accept(pair.getLeft(), pair.getRight()));
+    }
+
+    /**
+     * Gets a live view of the keys, as last put. Iteration is weakly
+     * consistent and removal writes through to this map.
      *
      * @return set of keys
      */
     @Nonnull
     @Override
     public Set<String> keySet() {
-        return this.map.values().stream().map(Pair::getLeft).collect(Collectors.toSet());
+        return this.keySet;
     }
 
     /**
-     * Gets an UNCHANGING representation of the values.
+     * Gets a live view of the values. Iteration is weakly consistent and
+     * removal writes through to this map.
      *
-     * @return list of values
+     * @return collection of values
      */
     @Nonnull
     @Override
     public Collection<Value> values() {
-        return this.map.values().stream().map(Pair::getRight).collect(Collectors.toList());
+        return this.values;
     }
 
     /**
-     * Gets an UNCHANGING representation of the entries.
+     * Gets a live view of the entries. Iteration is weakly consistent and
+     * both removal and {@link Entry#setValue(Object)} write through to this
+     * map.
      *
      * @return set of entries
      */
     @Nonnull
     @Override
     public Set<Entry<String, Value>> entrySet() {
-        return this.map.values().stream().map(pair -> new AbstractMap.SimpleImmutableEntry<>(pair.getLeft(), pair.getRight())).collect(Collectors.toSet());
+        return this.entrySet;
+    }
+
+    @Nullable
+    private Pair<String, Value> getPair(@Nullable Object key) {
+        if (key instanceof String) {
+            return this.store.read().get((String) key);
+        }
+        return null;
+    }
+
+    @Nullable
+    private Pair<String, Value> removePair(@Nullable Object key) {
+        if (key instanceof String) {
+            return this.store.write(epoch -> epoch.remove((String) key));
+        }
+        return null;
+    }
+
+    private final class ViewIterator<Type> implements Iterator<Type> {
+        private final Iterator<Pair<String, Value>> iterator = CIKeyMap.this.store.read().getMap().values().iterator();
+        private final Function<Pair<String, Value>, Type> function;
+        @Nullable
+        private Pair<String, Value> last;
+
+        private ViewIterator(@Nonnull Function<Pair<String, Value>, Type> function) {
+            this.function = function;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.iterator.hasNext();
+        }
+
+        @Override
+        public Type next() {
+            this.last = this.iterator.next();
+            return this.function.apply(this.last);
+        }
+
+        @Override
+        public void remove() {
+            if (this.last == null) {
+                throw new IllegalStateException("No element to remove");
+            }
+            CIKeyMap.this.removePair(this.last.getLeft());
+            this.last = null;
+        }
+    }
+
+    private final class WriteThroughEntry extends AbstractMap.SimpleEntry<String, Value> {
+        private WriteThroughEntry(@Nonnull Pair<String, Value> pair) {
+            super(pair.getLeft(), pair.getRight());
+        }
+
+        @Override
+        public Value setValue(Value value) {
+            CIKeyMap.this.put(this.getKey(), value);
+            return super.setValue(value);
+        }
+    }
+
+    private final class KeySet extends AbstractSet<String> {
+        @Nonnull
+        @Override
+        public Iterator<String> iterator() {
+            return new ViewIterator<>(Pair::getLeft);
+        }
+
+        @Override
+        public int size() {
+            return CIKeyMap.this.size();
+        }
+
+        @Override
+        public boolean contains(@Nullable Object o) {
+            return CIKeyMap.this.containsKey(o);
+        }
+
+        @Override
+        public boolean remove(@Nullable Object o) {
+            return CIKeyMap.this.removePair(o) != null;
+        }
+
+        @Override
+        public void clear() {
+            CIKeyMap.this.clear();
+        }
+    }
+
+    private final class Values extends AbstractCollection<Value> {
+        @Nonnull
+        @Override
+        public Iterator<Value> iterator() {
+            return new ViewIterator<>(Pair::getRight);
+        }
+
+        @Override
+        public int size() {
+            return CIKeyMap.this.size();
+        }
+
+        @Override
+        public boolean contains(@Nullable Object o) {
+            return CIKeyMap.this.containsValue(o);
+        }
+
+        @Override
+        public void clear() {
+            CIKeyMap.this.clear();
+        }
+    }
+
+    private final class EntrySet extends AbstractSet<Entry<String, Value>> {
+        @Nonnull
+        @Override
+        public Iterator<Entry<String, Value>> iterator() {
+            return new ViewIterator<>(WriteThroughEntry::new);
+        }
+
+        @Override
+        public int size() {
+            return CIKeyMap.this.size();
+        }
+
+        @Override
+        public boolean contains(@Nullable Object o) {
+            if (!(o instanceof Entry)) {
+                return false;
+            }
+            Entry<?, ?> entry = (Entry<?, ?>) o;
+            Pair<String, Value> pair = CIKeyMap.this.getPair(entry.getKey());
+            return (pair != null) && Objects.equals(pair.getRight(), entry.getValue());
+        }
+
+        @Override
+        public boolean remove(@Nullable Object o) {
+            if (!(o instanceof Entry) || !(((Entry<?, ?>) o).getKey() instanceof String)) {
+                return false;
+            }
+            Entry<?, ?> entry = (Entry<?, ?>) o;
+            String key = (String) entry.getKey();
+            return CIKeyMap.this.store.write(epoch -> {
+                Pair<String, Value> pair = epoch.get(key);
+                return (pair != null) && Objects.equals(pair.getRight(), entry.getValue()) && epoch.getMap().remove(epoch.key(key), pair);
+            });
+        }
+
+        @Override
+        public void clear() {
+            CIKeyMap.this.clear();
+        }
     }
 }
\ No newline at end of file
@@ -29,11 +29,9 @@ import org.kitteh.irc.client.library.Client;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.Iterator;
-import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -41,9 +39,8 @@ import java.util.stream.Collectors;
  * CaseMapping}.
  */
 public class CISet implements Set<String> {
-    private final Client client;
-    private CaseMapping lastCaseMapping;
-    private final Map<String, String> map = new ConcurrentHashMap<>();
+    // Values are the strings as last added, which the map's key may not be
+    private final CIStore<String> store;
 
     /**
      * Constructs a set tied to a client.
@@ -51,7 +48,7 @@ public class CISet implements Set<String> {
      * @param client the client to which this set is tied
      */
     public CISet(Client client) {
-        this.client = client;
+        this.store = new CIStore<>(client, Function.identity());
     }
 
     /**
@@ -61,60 +58,56 @@ public class CISet implements Set<String> {
      * @param input input to convert
      * @return lower cased input
      */
-    protected final synchronized String toLowerCase(@Nonnull String input) {
-        CaseMapping caseMapping = this.client.getServerInfo().getCaseMapping();
-        if (caseMapping != this.lastCaseMapping) {
-            Set<String> set = new HashSet<>(this.map.values());
-            this.lastCaseMapping = caseMapping;
-            this.map.clear();
-            set.forEach(this::add);
-        }
-        return caseMapping.toLowerCase(input);
+    protected final String toLowerCase(@Nonnull String input) {
+        return this.store.read().getCaseMapping().toLowerCase(input);
     }
 
     @Override
     public int size() {
-        return this.map.size();
+        return this.store.read().getMap().size();
     }
 
     @Override
     public boolean isEmpty() {
-        return this.map.isEmpty();
+        return this.store.read().getMap().isEmpty();
     }
 
     @Override
     public boolean contains(@Nullable Object o) {
-        return (o instanceof String) && this.map.containsKey(this.toLowerCase((String) o));
+        if (o instanceof String) {
+            return this.store.read().get((String) o) != null;
+        }
+        return false;
     }
 
     @Nonnull
     @Override
     public Iterator<String> iterator() {
-        return this.map.values().iterator();
+        return this.store.read().getMap().values().iterator();
     }
 
     @Nonnull
     @Override
     public Object[] toArray() {
-        return this.map.values().toArray();
+        return this.store.read().getMap().values().toArray();
     }
 
     @Nonnull
     @Override
     public <T> T[] toArray(@Nonnull T[] a) {
-        return this.map.values().toArray(a);
+        return this.store.read().getMap().values().toArray(a);
     }
 
     @Override
     public boolean add(@Nonnull String s) {
         Sanity.nullCheck(s, "String cannot be null");
-        this.map.put(this.toLowerCase(s), s);
+        this.store.write(epoch -> epoch.getMap().put(epoch.key(s), s));
         return true;
     }
 
     @Override
     public boolean remove(@Nullable Object o) {
-        return (o instanceof String) && (this.map.remove(this.toLowerCase((String) o)) != null);
+        return (o instanceof String) && (this.store.write(epoch -> epoch.remove((String) o)) != null);
     }
 
     @Override
@@ -138,17 +131,20 @@ public class CISet implements Set<String> {
     @Override
     public boolean retainAll(@Nonnull Collection<?> c) {
         Sanity.nullCheck(c, "Collection cannot be null");
-        return this.map.keySet().retainAll(c.stream().filter(i -> i instanceof String).map(i -> (String) i).map(this::toLowerCase).collect(Collectors.toSet()));
+        return this.store.write(epoch -> epoch.getMap().keySet().retainAll(c.stream().filter(i -> i instanceof String).map(i -> epoch.key((String) i)).collect(Collectors.toSet())));
     }
 
     @Override
     public boolean removeAll(@Nonnull Collection<?> c) {
         Sanity.nullCheck(c, "Collection cannot be null");
-        return this.map.keySet().removeAll(c.stream().filter(i -> i instanceof String).map(i -> (String) i).map(this::toLowerCase).collect(Collectors.toSet()));
+        return this.store.write(epoch -> epoch.getMap().keySet().removeAll(c.stream().filter(i -> i instanceof String).map(i -> epoch.key((String) i)).collect(Collectors.toSet())));
     }
 
     @Override
     public void clear() {
-        this.map.clear();
+        this.store.write(epoch -> {
+            epoch.getMap().clear();
+            return null;
+        });
     }
 }
\ No newline at end of file
@@ -0,0 +1,176 @@
+/*
+ * * Copyright (C) 2013-2015 Matt Baxter http://kitteh.org
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ * BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ * ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.kitteh.irc.client.library.util;
+
+import org.kitteh.irc.client.library.CaseMapping;
+import org.kitteh.irc.client.library.Client;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Function;
+
+/**
+ * Backing storage for case insensitive collections, keyed under one {@link
+ * CaseMapping} at a time. When the client's case mapping changes, the first
+ * caller to notice rebuilds the storage once under the new mapping and
+ * swaps it in, while reads carry on against the old. Reads take no lock and
+ * writes share one, which only a rebuild takes exclusively, so no write
+ * lands in storage that is being copied.
+ *
+ * @param <Value> type of stored value
+ */
+final class CIStore<Value> {
+    /**
+     * Storage keyed under one case mapping.
+     *
+     * @param <Value> type of stored value
+     */
+    static final class Epoch<Value> {
+        // Reused for lookups, which unlike writes never keep the key
+        private static final ThreadLocal<CIKey> PROBE = ThreadLocal.withInitial(CIKey::new);
+
+        private final CaseMapping caseMapping;
+        private final ConcurrentHashMap<CIKey, Value> map = new ConcurrentHashMap<>();
+
+        private Epoch(@Nonnull CaseMapping caseMapping) {
+            this.caseMapping = caseMapping;
+        }
+
+        @Nonnull
+        CaseMapping getCaseMapping() {
+            return this.caseMapping;
+        }
+
+        @Nonnull
+        ConcurrentHashMap<CIKey, Value> getMap() {
+            return this.map;
+        }
+
+        @Nonnull
+        CIKey key(@Nonnull String input) {
+            return new CIKey(input, this.caseMapping);
+        }
+
+        @Nonnull
+        CIKey key(@Nonnull CIKey key) {
+            return (key.getCaseMapping() == this.caseMapping) ? key : this.key(key.toString());
+        }
+
+        @Nullable
+        Value get(@Nonnull String input) {
+            CIKey probe = PROBE.get().set(input, this.caseMapping);
+            try {
+                return this.map.get(probe);
+            } finally {
+                probe.clear();
+            }
+        }
+
+        @Nullable
+        Value remove(@Nonnull String input) {
+            CIKey probe = PROBE.get().set(input, this.caseMapping);
+            try {
+                return this.map.remove(probe);
+            } finally {
+                probe.clear();
+            }
+        }
+    }
+
+    private final Client client;
+    private final AtomicReference<Epoch<Value>> epoch;
+    private final Function<Value, String> keyOf;
+    // Shared by writes, exclusive for rebuilds
+    private final StampedLock lock = new StampedLock();
+
+    /**
+     * Constructs storage tied to a client.
+     *
+     * @param client the client whose case mapping keys the storage
+     * @param keyOf gets the original key of a stored value, for rebuilding
+     */
+    CIStore(@Nonnull Client client, @Nonnull Function<Value, String> keyOf) {
+        this.client = client;
+        this.epoch = new AtomicReference<>();
+        this.keyOf = keyOf;
+    }
+
+    /**
+     * Gets the storage for reading, keyed under the current case mapping.
+     *
+     * @return current storage
+     */
+    @Nonnull
+    Epoch<Value> read() {
+        Epoch<Value> epoch = this.epoch.get();
+        CaseMapping caseMapping = this.client.getServerInfo().getCaseMapping();
+        if (epoch == null) { // Created on first use, as clients create collections before server info
+            this.epoch.compareAndSet(null, new Epoch<>(caseMapping));
+            epoch = this.epoch.get();
+        }
+        return (epoch.caseMapping == caseMapping) ? epoch : this.rebuild(caseMapping);
+    }
+
+    /**
+     * Makes a change to storage keyed under the current case mapping,
+     * holding off rebuilds until done so the change is made exactly once.
+     *
+     * @param write change to make
+     * @param <Result> result of the change
+     * @return result of the change
+     */
+    <Result> Result write(@Nonnull Function<Epoch<Value>, Result> write) {
+        while (true) {
+            Epoch<Value> epoch = this.read(); // Rebuilds, if needed, outside the lock
+            long stamp = this.lock.readLock();
+            try {
+                if (this.epoch.get() == epoch) {
+                    return write.apply(epoch);
+                }
+            } finally {
+                this.lock.unlockRead(stamp);
+            }
+        }
+    }
+
+    @Nonnull
+    private Epoch<Value> rebuild(@Nonnull CaseMapping caseMapping) {
+        long stamp = this.lock.writeLock(); // Waits out writes to the old storage
+        try {
+            Epoch<Value> old = this.epoch.get();
+            if (old.caseMapping == caseMapping) {
+                return old; // Someone else got there first
+            }
+            Epoch<Value> epoch = new Epoch<>(caseMapping);
+            old.map.values().forEach(value -> epoch.map.put(epoch.key(this.keyOf.apply(value)), value));
+            this.epoch.set(epoch);
+            return epoch;
+        } finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+}
\ No newline at end of file
@@ -23,14 +23,38 @@
  */
 package org.kitteh.irc.client.library.util;
 
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.Collection;
 import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Self starting processor of queued items on its own thread.
+ * <p>
+ * Items are handed over through a lock-free multi-producer, single-consumer
+ * queue. The processing thread drains everything available per wakeup and
+ * only parks once the queue has stayed empty for a short spin.
  */
 public abstract class QueueProcessingThread<Type> extends Thread {
-    private final Queue<Type> queue = new ConcurrentLinkedQueue<>();
+    private static final class Node<Type> {
+        @Nullable
+        private Type item;
+        @Nullable
+        private volatile Node<Type> next;
+
+        private Node(@Nullable Type item) {
+            this.item = item;
+        }
+    }
+
+    private static final int SPINS = 128;
+
+    // Producers swap in new nodes at the head, only this thread reads from the tail
+    private final AtomicReference<Node<Type>> head;
+    private Node<Type> tail;
+    private volatile boolean parked;
 
     /**
      * Creates a thread and starts itself.
@@ -38,27 +62,38 @@ public abstract class QueueProcessingThread<Type> extends Thread {
      * @param name name of the thread
      */
     protected QueueProcessingThread(String name) {
+        this.tail = new Node<>(null);
+        this.head = new AtomicReference<>(this.tail);
         this.setName(name);
         this.start();
     }
 
     @Override
     public void run() {
-        dance:
         while (!this.isInterrupted()) {
-            synchronized (this.queue) {
-                while (this.queue.isEmpty()) {
-                    try {
-                        this.queue.wait();
-                    } catch (InterruptedException e) {
-                        break dance;
-                    }
+            if (this.isEmpty()) {
+                this.await();
+                continue;
+            }
+            Type element;
+            while (((element = this.poll()) != null) || !this.isEmpty()) {
+                if (element != null) {
+                    this.processElement(element);
+                }
+                if (this.isInterrupted()) {
+                    break;
                 }
             }
-            this.processElement(this.queue.poll());
         }
         this.interrupt();
-        this.cleanup(this.queue);
+        Queue<Type> remainingQueue = new ArrayDeque<>();
+        Type element;
+        while (((element = this.poll()) != null) || !this.isEmpty()) {
+            if (element != null) {
+                remainingQueue.add(element);
+            }
+        }
+        this.cleanup(remainingQueue);
     }
 
     /**
@@ -83,9 +118,75 @@ public abstract class QueueProcessingThread<Type> extends Thread {
      * @param item item to queue
      */
     public void queue(Type item) {
-        synchronized (this.queue) {
-            this.queue.add(item);
-            this.queue.notify();
+        Sanity.nullCheck(item, "Item cannot be null");
+        Node<Type> node = new Node<>(item);
+        this.link(node, node);
+    }
+
+    /**
+     * Queues several items, in order, with a single handoff.
+     *
+     * @param items items to queue
+     */
+    public void queueAll(Collection<? extends Type> items) {
+        Sanity.nullCheck(items, "Items cannot be null");
+        Node<Type> first = null;
+        Node<Type> last = null;
+        for (Type item : items) {
+            Sanity.nullCheck(item, "Item cannot be null");
+            Node<Type> node = new Node<>(item);
+            if (last == null) {
+                first = node;
+            } else {
+                last.next = node;
+            }
+            last = node;
+        }
+        if (first != null) {
+            this.link(first, last);
+        }
+    }
+
+    private void await() {
+        for (int spin = 0; spin < SPINS; spin++) {
+            if (!this.isEmpty()) {
+                return;
+            }
+        }
+        this.parked = true;
+        // Re-check after announcing, a producer either sees the flag or queued before this
+        if (this.isEmpty() && !this.isInterrupted()) {
+            LockSupport.park(this);
+        }
+        this.parked = false;
+    }
+
+    private void link(Node<Type> first, Node<Type> last) {
+        this.head.getAndSet(last).next = first;
+        if (this.parked) {
+            LockSupport.unpark(this);
+        }
+    }
+
+    private boolean isEmpty() {
+        return this.head.get() == this.tail;
+    }
+
+    /**
+     * Takes the next item, if linked. May return null while not empty, if a
+     * producer has swapped in its node but not yet linked it.
+     *
+     * @return next item or null
+     */
+    @Nullable
+    private Type poll() {
+        Node<Type> next = this.tail.next;
+        if (next == null) {
+            return null;
         }
+        Type item = next.item;
+        next.item = null;
+        this.tail = next;
+        return item;
     }
 }
\ No newline at end of file
@@ -0,0 +1,143 @@
+package org.kitteh.irc.client.library;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.kitteh.irc.client.library.element.ChannelUserMode;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Makes sure prefixes become the right actors, reused while cached.
+ */
+public class ActorProviderTest {
+    /**
+     * Tests splitting of user masks and reuse of the same actor.
+     */
+    @Test
+    public void users() {
+        ActorProvider provider = new ActorProvider(new FakeClient());
+        ActorProvider.IRCActor actor = provider.getActor("kitteh!~meow@kitteh.org");
+        Assert.assertTrue(actor instanceof ActorProvider.IRCUser);
+        ActorProvider.IRCUser user = (ActorProvider.IRCUser) actor;
+        Assert.assertEquals("kitteh", user.getNick());
+        Assert.assertEquals("~meow", user.snapshot().getUser());
+        Assert.assertEquals("kitteh.org", user.snapshot().getHost());
+        Assert.assertSame(actor, provider.getActor("kitteh!~meow@kitteh.org"));
+
+        provider.trackUserQuit(user);
+        Assert.assertNotSame(actor, provider.getActor("kitteh!~meow@kitteh.org"));
+
+        // Every cached mask of the nick goes, however it was cased
+        ActorProvider.IRCActor other = provider.getActor("KITTEH!~purr@kitteh.org");
+        ActorProvider.IRCActor bystander = provider.getActor("meow!~meow@kitteh.org");
+        provider.trackUserNick((ActorProvider.IRCUser) provider.getActor("kitteh!~meow@kitteh.org"), "kitten");
+        Assert.assertNotSame(other, provider.getActor("KITTEH!~purr@kitteh.org"));
+        Assert.assertSame(bystander, provider.getActor("meow!~meow@kitteh.org"));
+    }
+
+    /**
+     * Tests names which are not user masks.
+     */
+    @Test
+    public void notUsers() {
+        ActorProvider provider = new ActorProvider(new FakeClient());
+        for (String name : new String[]{"irc.kitteh.org", "!user@host", "nick!@host", "nick!user@", "nick!us!er@host", "ni@ck!user@host", ""}) {
+            Assert.assertFalse(name, provider.getActor(name) instanceof ActorProvider.IRCUser);
+        }
+        Assert.assertTrue(provider.getActor("#kitteh") instanceof ActorProvider.IRCChannel);
+    }
+
+    /**
+     * Tests a user shared between channels through nick changes and quits.
+     */
+    @Test
+    public void sharedUsers() {
+        ActorProvider provider = new ActorProvider(new FakeClient());
+        ActorProvider.IRCChannel kitteh = provider.getChannel("#kitteh");
+        ActorProvider.IRCChannel meow = provider.getChannel("#meow");
+        ActorProvider.IRCUser user = (ActorProvider.IRCUser) provider.getActor("kitteh!~meow@kitteh.org");
+        kitteh.trackUserJoin(user);
+        meow.trackUserJoin(user);
+        meow.trackNick("lurker", Collections.emptySet());
+        Assert.assertEquals(new HashSet<>(Arrays.asList("#kitteh", "#meow")), user.snapshot().getChannels());
+
+        ActorProvider.IRCUser renamed = provider.trackUserNick(user, "kitten");
+        Assert.assertNull(kitteh.getUser("kitteh"));
+        Assert.assertSame(renamed, kitteh.getUser("kitten"));
+        Assert.assertSame(renamed, meow.getUser("KITTEN"));
+        Assert.assertEquals(Arrays.asList("kitten", "lurker"), meow.snapshot().getNicknames().stream().sorted().collect(Collectors.toList()));
+
+        kitteh.trackUserPart(renamed);
+        Assert.assertEquals(Collections.singleton("#meow"), renamed.snapshot().getChannels());
+        provider.trackUserQuit(renamed);
+        Assert.assertEquals(Collections.emptySet(), renamed.snapshot().getChannels());
+        Assert.assertEquals(Collections.singletonList("lurker"), meow.snapshot().getNicknames());
+    }
+
+    /**
+     * Tests that snapshots are reused until the channel changes.
+     */
+    @Test
+    public void channelSnapshots() {
+        ActorProvider provider = new ActorProvider(new FakeClient());
+        ActorProvider.IRCChannel channel = provider.getChannel("#kitteh");
+        channel.setListReceived();
+        channel.trackNick("kitteh", Collections.emptySet());
+        ActorProvider.IRCChannelSnapshot snapshot = channel.snapshot();
+        Assert.assertSame(snapshot, channel.snapshot());
+
+        ActorProvider.IRCChannel other = provider.getChannel("#meow");
+        ActorProvider.IRCChannelSnapshot otherSnapshot = other.snapshot();
+        other.trackUserJoin((ActorProvider.IRCUser) provider.getActor("kitteh!~meow@kitteh.org"));
+        Assert.assertNotSame(otherSnapshot, other.snapshot());
+        Assert.assertNotSame(snapshot, channel.snapshot()); // Kitteh's channels changed
+
+        snapshot = channel.snapshot();
+        channel.trackUserModeAdd("kitteh", new ActorProvider.IRCChannelUserMode(channel.getClient(), 'o', '@'));
+        Assert.assertEquals(Collections.emptySet(), snapshot.getUserModes("kitteh"));
+        Assert.assertEquals(1, channel.snapshot().getUserModes("kitteh").size());
+    }
+
+    /**
+     * Tests that snapshots built on first use show the state when taken.
+     */
+    @Test
+    public void lazySnapshots() {
+        ActorProvider provider = new ActorProvider(new FakeClient());
+        ActorProvider.IRCChannel channel = provider.getChannel("#kitteh");
+        ActorProvider.IRCUser user = (ActorProvider.IRCUser) provider.getActor("kitteh!~meow@kitteh.org");
+        channel.trackUserJoin(user);
+        ActorProvider.IRCChannelSnapshot snapshot = channel.snapshot();
+
+        provider.getChannel("#meow").trackUserJoin(user);
+        channel.trackNick("lurker", Collections.emptySet());
+        provider.trackUserNick(user, "kitten");
+        Assert.assertEquals(Collections.singletonList("kitteh"), snapshot.getNicknames());
+        Assert.assertEquals(Collections.singleton("#kitteh"), snapshot.getUser("kitteh").getChannels());
+        Assert.assertEquals(2, channel.snapshot().getNicknames().size());
+    }
+
+    /**
+     * Tests that members keep their modes when PREFIX changes order.
+     */
+    @Test
+    public void prefixChange() {
+        FakeClient client = new FakeClient();
+        ActorProvider provider = new ActorProvider(client);
+        ActorProvider.IRCChannel channel = provider.getChannel("#kitteh");
+        channel.setListReceived();
+        channel.trackNick("kitteh", Collections.emptySet());
+        channel.trackUserModeAdd("kitteh", new ActorProvider.IRCChannelUserMode(client, 'o', '@'));
+        ActorProvider.IRCChannelSnapshot snapshot = channel.snapshot();
+
+        List<ChannelUserMode> previous = client.getServerInfo().getChannelUserModes();
+        List<ChannelUserMode> next = Arrays.asList(new ActorProvider.IRCChannelUserMode(client, 'q', '~'), new ActorProvider.IRCChannelUserMode(client, 'v', '+'), new ActorProvider.IRCChannelUserMode(client, 'o', '@'));
+        provider.channelUserModesChange(previous, next, () -> client.setServerInfo(client.getServerInfo().withChannelUserModes(next)));
+        Assert.assertEquals(Collections.singleton('o'), channel.snapshot().getUserModes("kitteh").stream().map(ChannelUserMode::getMode).collect(Collectors.toSet()));
+        Assert.assertEquals(Collections.singleton('o'), snapshot.getUserModes("kitteh").stream().map(ChannelUserMode::getMode).collect(Collectors.toSet()));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,27 @@
+package org.kitteh.irc.client.library;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Makes sure case insensitive comparison follows the case mapping.
+ */
+public class CaseMappingTest {
+    private static final String[] NAMES = {"Kitteh", "KITTEH", "kitteh", "[Kitteh]", "{kitteh}", "Kitteh^", "kitteh~", "Kitteh\\", "kitteh|", "", "K", "#Kitteh"};
+
+    /**
+     * Tests hashing and comparison against lowercased strings for every
+     * case mapping.
+     */
+    @Test
+    public void inPlace() {
+        for (CaseMapping caseMapping : CaseMapping.values()) {
+            for (String a : NAMES) {
+                Assert.assertEquals(caseMapping + " " + a, caseMapping.toLowerCase(a).hashCode(), caseMapping.lowerCaseHashCode(a));
+                for (String b : NAMES) {
+                    Assert.assertEquals(caseMapping + " " + a + ' ' + b, caseMapping.toLowerCase(a).equals(caseMapping.toLowerCase(b)), caseMapping.areEqualIgnoringCase(a, b));
+                }
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,88 @@
+package org.kitteh.irc.client.library;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Makes sure channels are packed into as few lines as the server accepts.
+ */
+public class ChannelListPackerTest {
+    /**
+     * Tests keyed channels going first, with their keys.
+     */
+    @Test
+    public void keys() {
+        Map<String, String> channels = new LinkedHashMap<>();
+        channels.put("#open", null);
+        channels.put("#secret", "meow");
+        channels.put("#other", null);
+        List<OutboundLine> lines = ChannelListPacker.join(channels, Collections.emptySet(), new IRCServerInfo(new FakeClient()), channel -> Assert.fail());
+        Assert.assertEquals(1, lines.size());
+        Assert.assertEquals("JOIN #secret,#open,#other :meow", lines.get(0).toString());
+    }
+
+    /**
+     * Tests splitting lines by length and by TARGMAX, and leaving out
+     * channels over CHANLIMIT.
+     */
+    @Test
+    public void limits() {
+        List<String> channels = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            channels.add("#kitteh-channel-" + i);
+        }
+        IRCServerInfo serverInfo = new IRCServerInfo(new FakeClient());
+        List<OutboundLine> lines = ChannelListPacker.part(channels, "bye", serverInfo);
+        int parted = 0;
+        for (OutboundLine line : lines) {
+            Assert.assertTrue(line.length() <= 510);
+            Assert.assertTrue(line.toString().endsWith(" :bye"));
+            parted += line.getTarget().split(",").length;
+        }
+        Assert.assertEquals(100, parted);
+        Assert.assertEquals(4, lines.size());
+
+        serverInfo = serverInfo.withTargetLimits(Collections.singletonMap("JOIN", 3));
+        Map<String, String> joining = new LinkedHashMap<>();
+        Arrays.asList("#a", "#b", "#c", "#d").forEach(channel -> joining.put(channel, null));
+        Assert.assertEquals(2, ChannelListPacker.join(joining, Collections.emptySet(), serverInfo, channel -> Assert.fail()).size());
+
+        Map<String, Integer> channelLimits = new HashMap<>();
+        channelLimits.put("#", 2);
+        serverInfo = serverInfo.withChannelLimits(channelLimits).withTargetLimits(Collections.emptyMap());
+        joining.put("&e", null);
+        List<String> overLimit = new ArrayList<>();
+        lines = ChannelListPacker.join(joining, Collections.singleton("#z"), serverInfo, overLimit::add);
+        Assert.assertEquals(1, lines.size());
+        Assert.assertEquals("JOIN #a,&e", lines.get(0).toString());
+        Assert.assertEquals(Arrays.asList("#b", "#c", "#d"), overLimit);
+
+        overLimit.clear();
+        lines = ChannelListPacker.join(joining, Arrays.asList("#a", "#b"), serverInfo, overLimit::add);
+        Assert.assertEquals("JOIN #a,#b,&e", lines.get(0).toString());
+        Assert.assertEquals(Arrays.asList("#c", "#d"), overLimit);
+    }
+
+    /**
+     * Tests a CHANLIMIT shared by a group of prefixes, as in #&amp;:3.
+     */
+    @Test
+    public void sharedLimit() {
+        IRCServerInfo serverInfo = new IRCServerInfo(new FakeClient()).withChannelLimits(Collections.singletonMap("#&", 3));
+        Assert.assertEquals(Integer.valueOf(3), serverInfo.getChannelLimits().get('&'));
+        Map<String, String> joining = new LinkedHashMap<>();
+        Arrays.asList("#a", "&b", "#c", "&d").forEach(channel -> joining.put(channel, null));
+        List<String> overLimit = new ArrayList<>();
+        List<OutboundLine> lines = ChannelListPacker.join(joining, Collections.singleton("&z"), serverInfo, overLimit::add);
+        Assert.assertEquals("JOIN #a,&b", lines.get(0).toString());
+        Assert.assertEquals(Arrays.asList("#c", "&d"), overLimit);
+    }
+}
\ No newline at end of file
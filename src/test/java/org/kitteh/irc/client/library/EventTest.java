@@ -12,6 +12,9 @@ public class EventTest {
         private boolean success = false;
     }
 
+    private class SubEvent extends Event {
+    }
+
     /**
      * Tests ability to register and fire an event.
      */
@@ -25,6 +28,22 @@ public class EventTest {
         Assert.assertTrue("Failed to register and fire an event", event.success);
     }
 
+    /**
+     * Tests the cached check for listeners, including supertypes.
+     */
+    @Test
+    public void testHasListeners() {
+        FakeClient fakeClient = new FakeClient();
+        EventManager manager = fakeClient.getEventManager();
+        Assert.assertFalse(manager.hasListeners(SubEvent.class));
+        manager.registerEventListener(this);
+        Assert.assertTrue(manager.hasListeners(Event.class));
+        Assert.assertTrue(manager.hasListeners(SubEvent.class));
+        Assert.assertFalse(manager.hasListeners(String.class));
+        manager.unregisterEventListener(this);
+        Assert.assertFalse(manager.hasListeners(SubEvent.class));
+    }
+
     /**
      * A test method for listening to an event.
      *
@@ -5,20 +5,29 @@ import org.kitteh.irc.client.library.element.MessageReceiver;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
-class FakeClient extends InternalClient {
+public class FakeClient extends InternalClient {
     private final Config config = new Config();
     private final EventManager eventManager = new EventManager(this);
     private final Listener<Exception> listenerException = new Listener<>("Test", null);
     private final Listener<String> listenerInput = new Listener<>("Test", null);
+    private final OutboundQueue outboundQueue = new OutboundQueue();
     private final Listener<String> listenerOutput = new Listener<>("Test", null);
-    private final ServerInfo serverInfo = new IRCServerInfo(this);
+    private volatile IRCServerInfo serverInfo = new IRCServerInfo(this);
 
     @Override
-    void processLine(@Nonnull String line) {
+    boolean processPing(@Nonnull byte[] line) {
+        return false;
+    }
+
+    @Override
+    void processLines(@Nonnull Collection<byte[]> lines) {
 
     }
 
@@ -46,14 +55,26 @@ class FakeClient extends InternalClient {
         return this.listenerOutput;
     }
 
+    @Nonnull
+    @Override
+    OutboundQueue getOutboundQueue() {
+        return this.outboundQueue;
+    }
+
     @Override
     void authenticate() {
 
     }
 
+    @Nonnull
     @Override
-    void connect() {
+    CompletableFuture<Void> connect() {
+        return new CompletableFuture<>();
+    }
 
+    @Override
+    long nextReconnectDelay() {
+        return -1;
     }
 
     @Override
@@ -71,6 +92,16 @@ class FakeClient extends InternalClient {
 
     }
 
+    @Override
+    public void addKeyProtectedChannel(@Nonnull String channel, @Nonnull String key) {
+
+    }
+
+    @Override
+    public void addKeyProtectedChannels(@Nonnull Map<String, String> channelsAndKeys) {
+
+    }
+
     @Nullable
     @Override
     public Channel getChannel(@Nonnull String name) {
@@ -114,10 +145,25 @@ class FakeClient extends InternalClient {
 
     @Nonnull
     @Override
-    public ServerInfo getServerInfo() {
+    public IRCServerInfo getServerInfo() {
+        return this.serverInfo;
+    }
+
+    @Nonnull
+    @Override
+    IRCServerInfo getServerInfoSnapshot() {
         return this.serverInfo;
     }
 
+    void setServerInfo(@Nonnull IRCServerInfo serverInfo) {
+        this.serverInfo = serverInfo;
+    }
+
+    // For tests outside this package, which can't reach IRCServerInfo
+    public void setCaseMapping(@Nonnull CaseMapping caseMapping) {
+        this.serverInfo = this.serverInfo.withCaseMapping(caseMapping);
+    }
+
     @Override
     public void removeChannel(@Nonnull String channel, @Nullable String reason) {
 
@@ -128,6 +174,11 @@ class FakeClient extends InternalClient {
 
     }
 
+    @Override
+    public void removeChannels(@Nullable String reason, @Nonnull String... channels) {
+
+    }
+
     @Override
     public void sendCTCPMessage(@Nonnull String target, @Nonnull String message) {
 
@@ -173,6 +224,36 @@ class FakeClient extends InternalClient {
 
     }
 
+    @Override
+    public void sendMessage(@Nonnull String target, @Nonnull String message, @Nonnull MessagePriority priority) {
+
+    }
+
+    @Override
+    public void sendMessage(@Nonnull MessageReceiver target, @Nonnull String message, @Nonnull MessagePriority priority) {
+
+    }
+
+    @Override
+    public void sendNotice(@Nonnull String target, @Nonnull String message, @Nonnull MessagePriority priority) {
+
+    }
+
+    @Override
+    public void sendNotice(@Nonnull MessageReceiver target, @Nonnull String message, @Nonnull MessagePriority priority) {
+
+    }
+
+    @Override
+    public void sendRawLine(@Nonnull String message, @Nonnull MessagePriority priority) {
+
+    }
+
+    @Override
+    public void sendRawLineAvoidingDuplication(@Nonnull String message, @Nonnull MessagePriority priority) {
+
+    }
+
     @Override
     public void setAuth(@Nonnull AuthType authType, @Nonnull String name, @Nonnull String pass) {
 
@@ -0,0 +1,80 @@
+package org.kitteh.irc.client.library;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the flood control strategies.
+ */
+public class FloodControlTest {
+    /**
+     * Tests a token bucket's burst and refill.
+     */
+    @Test
+    public void tokenBucket() {
+        FloodControl floodControl = new TokenBucketFloodControl(3, 1000);
+        Assert.assertEquals(0, floodControl.acquire(0, 10));
+        Assert.assertEquals(0, floodControl.acquire(0, 10));
+        Assert.assertEquals(0, floodControl.acquire(0, 10));
+        Assert.assertEquals(1000, floodControl.acquire(0, 10));
+        Assert.assertEquals(500, floodControl.acquire(500, 10));
+        Assert.assertEquals(0, floodControl.acquire(1000, 10));
+        Assert.assertEquals(1000, floodControl.acquire(1000, 10));
+    }
+
+    /**
+     * Tests the message delay preset of one line per refill.
+     */
+    @Test
+    public void tokenBucketSingle() {
+        FloodControl floodControl = new TokenBucketFloodControl(1, 1200);
+        Assert.assertEquals(0, floodControl.acquire(0, 10));
+        Assert.assertEquals(1200, floodControl.acquire(0, 10));
+        Assert.assertEquals(0, floodControl.acquire(1200, 10));
+    }
+
+    /**
+     * Tests length-weighted token costs.
+     */
+    @Test
+    public void tokenBucketWeighted() {
+        FloodControl floodControl = new TokenBucketFloodControl(4, 1000, 100);
+        Assert.assertEquals(0, floodControl.acquire(0, 250)); // 3 tokens
+        Assert.assertEquals(2000, floodControl.acquire(0, 250));
+        Assert.assertEquals(0, floodControl.acquire(0, 50));
+    }
+
+    /**
+     * Tests RFC 1459 style penalties.
+     */
+    @Test
+    public void penalty() {
+        FloodControl floodControl = new PenaltyFloodControl(2000, 10000);
+        for (int i = 0; i < 6; i++) {
+            Assert.assertEquals(0, floodControl.acquire(0, 10));
+        }
+        Assert.assertEquals(2000, floodControl.acquire(0, 10));
+        Assert.assertEquals(0, floodControl.acquire(2000, 10));
+    }
+
+    /**
+     * Tests that spent budget carries over to a replacement.
+     */
+    @Test
+    public void carryOver() {
+        FloodControl floodControl = new TokenBucketFloodControl(3, 1000);
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(0, floodControl.acquire(0, 10));
+        }
+        Assert.assertEquals(2500, floodControl.getRecoveryMillis(500));
+
+        FloodControl replacement = new TokenBucketFloodControl(3, 1000);
+        replacement.spend(500, floodControl.getRecoveryMillis(500));
+        Assert.assertEquals(500, replacement.acquire(500, 10));
+        Assert.assertEquals(0, replacement.acquire(1000, 10));
+
+        FloodControl penalty = new PenaltyFloodControl(2000, 0);
+        penalty.spend(500, floodControl.getRecoveryMillis(500));
+        Assert.assertEquals(2500, penalty.acquire(500, 10));
+    }
+}
\ No newline at end of file
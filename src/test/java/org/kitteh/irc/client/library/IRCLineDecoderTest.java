@@ -0,0 +1,48 @@
+package org.kitteh.irc.client.library;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.CharsetUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests splitting the inbound stream into lines.
+ */
+public class IRCLineDecoderTest {
+    /**
+     * Tests mixed line endings and lines split across reads.
+     */
+    @Test
+    public void lineEndings() {
+        EmbeddedChannel channel = new EmbeddedChannel(new IRCLineDecoder(512));
+        channel.writeInbound(Unpooled.copiedBuffer("PING :one\r\nPING :two\nPING :th", CharsetUtil.UTF_8));
+        channel.writeInbound(Unpooled.copiedBuffer("ree\r\n\r\n", CharsetUtil.UTF_8));
+        Assert.assertEquals("PING :one", this.read(channel));
+        Assert.assertEquals("PING :two", this.read(channel));
+        Assert.assertEquals("PING :three", this.read(channel));
+        Assert.assertNull(channel.readInbound());
+    }
+
+    /**
+     * Tests that an overly long line is skipped without losing the next.
+     */
+    @Test
+    public void tooLong() {
+        EmbeddedChannel channel = new EmbeddedChannel(new IRCLineDecoder(8));
+        try {
+            channel.writeInbound(Unpooled.copiedBuffer("PRIVMSG #kitteh :meow", CharsetUtil.UTF_8));
+            channel.checkException();
+            Assert.fail("Expected too long line to be reported");
+        } catch (Exception expected) {
+            // Expected
+        }
+        channel.writeInbound(Unpooled.copiedBuffer("meow\r\nPING :a\r\n", CharsetUtil.UTF_8));
+        Assert.assertEquals("PING :a", this.read(channel));
+        Assert.assertNull(channel.readInbound());
+    }
+
+    private String read(EmbeddedChannel channel) {
+        return new String((byte[]) channel.readInbound(), CharsetUtil.UTF_8);
+    }
+}
\ No newline at end of file
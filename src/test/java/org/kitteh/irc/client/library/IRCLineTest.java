@@ -0,0 +1,81 @@
+package org.kitteh.irc.client.library;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Makes sure lines are split up the way the server meant them.
+ */
+public class IRCLineTest {
+    /**
+     * Tests a line with a prefix and a trailing parameter.
+     */
+    @Test
+    public void prefixAndTrailing() {
+        IRCLine line = new IRCLine();
+        Assert.assertTrue(line.parse(":kitteh!~meow@kitteh.org PRIVMSG #kitteh :Hello  there :)"));
+        Assert.assertEquals("kitteh!~meow@kitteh.org", line.getPrefix());
+        Assert.assertEquals("PRIVMSG", line.getCommand());
+        Assert.assertEquals(-1, line.getNumeric());
+        Assert.assertEquals(2, line.getArgCount());
+        Assert.assertEquals("#kitteh", line.getArg(0));
+        Assert.assertEquals("Hello  there :)", line.getArg(1));
+    }
+
+    /**
+     * Tests a numeric with a prefix, plus reuse of the same instance for a
+     * line without one.
+     */
+    @Test
+    public void numericAndReuse() {
+        IRCLine line = new IRCLine();
+        Assert.assertTrue(line.parse(":irc.kitteh.org 005 Kitteh CASEMAPPING=rfc1459 PREFIX=(ov)@+ :are supported"));
+        Assert.assertEquals(5, line.getNumeric());
+        Assert.assertEquals(4, line.getArgCount());
+        Assert.assertEquals("PREFIX=(ov)@+", line.getArg(2));
+
+        Assert.assertTrue(line.parse("PING :meow"));
+        Assert.assertEquals("", line.getPrefix());
+        Assert.assertEquals("PING", line.getCommand());
+        Assert.assertEquals(1, line.getArgCount());
+        Assert.assertEquals("meow", line.getArg(0));
+    }
+
+    /**
+     * Tests more parameters than initially allotted and an empty trailing
+     * parameter.
+     */
+    @Test
+    public void manyArgs() {
+        IRCLine line = new IRCLine();
+        StringBuilder builder = new StringBuilder("COMMAND");
+        for (int i = 0; i < 20; i++) {
+            builder.append(' ').append(i);
+        }
+        Assert.assertTrue(line.parse(builder.append(" :").toString()));
+        Assert.assertEquals(21, line.getArgCount());
+        Assert.assertEquals("19", line.getArg(19));
+        Assert.assertEquals("", line.getArg(20));
+    }
+
+    /**
+     * Tests decoding of non-ASCII parameters.
+     */
+    @Test
+    public void utf8() {
+        IRCLine line = new IRCLine();
+        Assert.assertTrue(line.parse(":kitteh!~meow@kitteh.org PRIVMSG #kitteh :\u00fcber kitteh \u732b"));
+        Assert.assertEquals("#kitteh", line.getArg(0));
+        Assert.assertEquals("\u00fcber kitteh \u732b", line.getArg(1));
+    }
+
+    /**
+     * Tests lines without a command.
+     */
+    @Test
+    public void noCommand() {
+        IRCLine line = new IRCLine();
+        Assert.assertFalse(line.parse(":prefix.only"));
+        Assert.assertFalse(line.parse(""));
+    }
+}
\ No newline at end of file
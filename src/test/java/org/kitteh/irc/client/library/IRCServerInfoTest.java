@@ -0,0 +1,78 @@
+package org.kitteh.irc.client.library;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Makes sure mode lookups follow the server's ISUPPORT information.
+ */
+public class IRCServerInfoTest {
+    /**
+     * Tests lookups by mode and prefix, before and after PREFIX changes.
+     */
+    @Test
+    public void channelUserModes() {
+        FakeClient client = new FakeClient();
+        IRCServerInfo info = new IRCServerInfo(client);
+        Assert.assertEquals('o', info.getChannelUserModeByPrefix('@').getMode());
+        Assert.assertEquals(1, info.getChannelUserModeIndex('v'));
+        Assert.assertNull(info.getChannelUserModeByMode('h'));
+        Assert.assertNull(info.getChannelUserModeByPrefix('\u00e9'));
+
+        info = info.withChannelUserModes(Arrays.asList(new ActorProvider.IRCChannelUserMode(client, 'q', '~'), new ActorProvider.IRCChannelUserMode(client, 'o', '@'), new ActorProvider.IRCChannelUserMode(client, 'h', '%')));
+        Assert.assertEquals('%', info.getChannelUserModeByMode('h').getPrefix());
+        Assert.assertEquals(1, info.getChannelUserModeIndex('o'));
+        Assert.assertEquals(-1, info.getChannelUserModeIndex('v'));
+    }
+
+    /**
+     * Tests lookups of channel mode types.
+     */
+    @Test
+    public void channelModes() {
+        IRCServerInfo info = new IRCServerInfo(new FakeClient());
+        Assert.assertEquals(ChannelModeType.getDefaultModes().get('b'), info.getChannelMode('b'));
+        info = info.withChannelModes(ChannelModeType.getDefaultModes());
+        Assert.assertNull(info.getChannelMode('\u0100'));
+        Assert.assertNull(info.getChannelMode('o'));
+    }
+
+    /**
+     * Tests channel name validation against CHANTYPES and CHANNELLEN.
+     */
+    @Test
+    public void channelNames() {
+        IRCServerInfo info = new IRCServerInfo(new FakeClient());
+        Assert.assertTrue(info.isValidChannel("#kitteh"));
+        Assert.assertTrue(info.isValidChannel("&kitteh"));
+        Assert.assertFalse(info.isValidChannel("kitteh"));
+        Assert.assertFalse(info.isValidChannel("#"));
+        Assert.assertFalse(info.isValidChannel("#kit,teh"));
+        Assert.assertFalse(info.isValidChannel("#kit teh"));
+        Assert.assertEquals('o', info.getTargetedChannelInfo("@#kitteh").getMode());
+        Assert.assertNull(info.getTargetedChannelInfo("@kitteh"));
+        Assert.assertNull(info.getTargetedChannelInfo("##kitteh"));
+
+        IRCServerInfo changed = info.withChannelPrefixes(Collections.singletonList('#')).withChannelLengthLimit(4);
+        Assert.assertTrue(changed.isValidChannel("#kit"));
+        Assert.assertFalse(changed.isValidChannel("#kitteh"));
+        Assert.assertFalse(changed.isValidChannel("&kit"));
+        Assert.assertTrue(info.isValidChannel("&kitteh")); // Unchanged
+    }
+
+    /**
+     * Tests that live information follows the replacements.
+     */
+    @Test
+    public void live() {
+        IRCServerInfo info = new IRCServerInfo(new FakeClient());
+        LiveServerInfo live = new LiveServerInfo(info);
+        Assert.assertEquals(-1, live.getNickLengthLimit());
+        live.set(info.withNickLengthLimit(30));
+        Assert.assertEquals(30, live.getNickLengthLimit());
+        Assert.assertEquals(-1, info.getNickLengthLimit());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,59 @@
+package org.kitteh.irc.client.library;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Makes sure the member table behaves like a map.
+ */
+public class MemberTableTest {
+    /**
+     * Tests basic operations.
+     */
+    @Test
+    public void basics() {
+        MemberTable table = new MemberTable();
+        Assert.assertEquals(-1, table.get(1));
+        table.put(1, 0);
+        table.put(2, 5);
+        Assert.assertTrue(table.contains(1));
+        Assert.assertEquals(0, table.get(1));
+        Assert.assertEquals(5, table.get(2));
+        table.put(2, 3);
+        Assert.assertEquals(3, table.get(2));
+        Assert.assertEquals(2, table.size());
+        Assert.assertTrue(table.remove(1));
+        Assert.assertFalse(table.remove(1));
+        Assert.assertFalse(table.contains(1));
+        Assert.assertEquals(1, table.size());
+    }
+
+    /**
+     * Tests many random changes against a regular map, including growing and
+     * shrinking.
+     */
+    @Test
+    public void randomized() {
+        MemberTable table = new MemberTable();
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            int id = random.nextInt(((i / 20000) % 2 == 0) ? 5000 : 50) + 1;
+            if (random.nextInt(3) == 0) {
+                Assert.assertEquals(expected.remove(id) != null, table.remove(id));
+            } else {
+                int modes = random.nextInt(16);
+                expected.put(id, modes);
+                table.put(id, modes);
+            }
+        }
+        Assert.assertEquals(expected.size(), table.size());
+        Map<Integer, Integer> actual = new HashMap<>();
+        table.forEach(actual::put);
+        Assert.assertEquals(expected, actual);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,46 @@
+package org.kitteh.irc.client.library;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.CharsetUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests segmented outbound lines.
+ */
+public class OutboundLineTest {
+    /**
+     * Tests that segments read as the line they represent.
+     */
+    @Test
+    public void text() {
+        OutboundLine line = new OutboundLine("PRIVMSG", "#kitteh", "meow purr");
+        Assert.assertEquals("PRIVMSG #kitteh :meow purr", line.toString());
+        Assert.assertEquals(line.toString().length(), line.length());
+        Assert.assertEquals(new OutboundLine("PRIVMSG #kitteh :meow purr"), line);
+        Assert.assertEquals("PRIVMSG #kitteh :meow purr".hashCode(), line.hashCode());
+        Assert.assertEquals("QUIT", new OutboundLine("QUIT", null, null).toString());
+    }
+
+    /**
+     * Tests encoding, including non-ASCII payloads and their length in
+     * bytes.
+     */
+    @Test
+    public void encode() {
+        EmbeddedChannel channel = new EmbeddedChannel(new OutboundLineEncoder(new Listener<>("Test", null)));
+        OutboundLine line = new OutboundLine("NOTICE", "kitteh", "\u00fcber \u732b");
+        channel.writeOutbound(line);
+        ByteBuf buf = (ByteBuf) channel.readOutbound();
+        Assert.assertEquals("NOTICE kitteh :\u00fcber \u732b\r\n", buf.toString(CharsetUtil.UTF_8));
+        Assert.assertEquals(buf.readableBytes(), line.getEncodedLength() + 2);
+        buf.release();
+
+        line = new OutboundLine("PRIVMSG #kitteh :\ud83d\udc31");
+        channel.writeOutbound(line);
+        buf = (ByteBuf) channel.readOutbound();
+        Assert.assertEquals(buf.readableBytes(), line.getEncodedLength() + 2);
+        buf.release();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,222 @@
+package org.kitteh.irc.client.library;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.kitteh.irc.client.library.exception.KittehQueueFullException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Makes sure queued lines leave in priority order and targets take turns.
+ */
+public class OutboundQueueTest {
+    /**
+     * Tests that higher priorities are always sent first.
+     */
+    @Test
+    public void priorityOrder() {
+        OutboundQueue queue = new OutboundQueue();
+        OutboundLine bulk = new OutboundLine("PRIVMSG", "#kitteh", "bulk", MessagePriority.BULK);
+        OutboundLine chat = new OutboundLine("PRIVMSG", "#kitteh", "chat");
+        OutboundLine join = new OutboundLine("JOIN :#meow", MessagePriority.CONTROL);
+        queue.add(bulk);
+        queue.add(chat);
+        queue.add(join);
+        Assert.assertEquals(3, queue.size());
+        Assert.assertSame(join, queue.poll());
+        Assert.assertSame(chat, queue.poll());
+        Assert.assertSame(bulk, queue.poll());
+        Assert.assertNull(queue.poll());
+        Assert.assertTrue(queue.isEmpty());
+    }
+
+    /**
+     * Tests round-robin between targets of the same priority.
+     */
+    @Test
+    public void fairness() {
+        OutboundQueue queue = new OutboundQueue();
+        OutboundLine first = new OutboundLine("PRIVMSG", "#busy", "1");
+        OutboundLine second = new OutboundLine("PRIVMSG", "#busy", "2");
+        OutboundLine third = new OutboundLine("PRIVMSG", "#busy", "3");
+        OutboundLine quiet = new OutboundLine("PRIVMSG", "#quiet", "hi");
+        queue.add(first);
+        queue.add(second);
+        queue.add(third);
+        queue.add(quiet);
+        Assert.assertTrue(queue.contains(new OutboundLine("PRIVMSG #quiet :hi")));
+        Assert.assertSame(first, queue.peek(System.currentTimeMillis()));
+        Assert.assertSame(first, queue.poll());
+        Assert.assertSame(quiet, queue.poll());
+        Assert.assertSame(second, queue.poll());
+        Assert.assertSame(third, queue.poll());
+    }
+
+    /**
+     * Tests round-robin between targets of raw lines.
+     */
+    @Test
+    public void rawFairness() {
+        OutboundQueue queue = new OutboundQueue();
+        OutboundLine first = new OutboundLine("PRIVMSG #busy :1");
+        OutboundLine second = new OutboundLine("PRIVMSG #busy :2");
+        OutboundLine quiet = new OutboundLine("MODE #quiet +m");
+        OutboundLine away = new OutboundLine("AWAY :brb");
+        queue.add(first);
+        queue.add(second);
+        queue.add(quiet);
+        queue.add(away);
+        Assert.assertEquals("#busy", first.getQueueTarget());
+        Assert.assertNull(away.getQueueTarget());
+        Assert.assertSame(first, queue.poll());
+        Assert.assertSame(quiet, queue.poll());
+        Assert.assertSame(away, queue.poll());
+        Assert.assertSame(second, queue.poll());
+    }
+
+    /**
+     * Tests that duplicates are tracked until the last copy leaves.
+     */
+    @Test
+    public void duplicates() {
+        OutboundQueue queue = new OutboundQueue();
+        queue.add(new OutboundLine("WHO #kitteh", MessagePriority.CONTROL));
+        queue.add(new OutboundLine("WHO #kitteh"));
+        Assert.assertTrue(queue.contains(new OutboundLine("WHO", "#kitteh", null)));
+        queue.poll();
+        Assert.assertTrue(queue.contains(new OutboundLine("WHO #kitteh")));
+        queue.poll();
+        Assert.assertFalse(queue.contains(new OutboundLine("WHO #kitteh")));
+    }
+
+    /**
+     * Tests rejection when full.
+     */
+    @Test(expected = KittehQueueFullException.class)
+    public void reject() {
+        OutboundQueue queue = new OutboundQueue(1, QueueOverflowPolicy.REJECT, 0);
+        queue.add(new OutboundLine("PRIVMSG", "#kitteh", "1"));
+        queue.add(new OutboundLine("PRIVMSG", "#kitteh", "2"));
+    }
+
+    /**
+     * Tests the dropping overflow policies.
+     */
+    @Test
+    public void drop() {
+        OutboundLine old = new OutboundLine("PRIVMSG", "#kitteh", "old");
+        OutboundLine bulk = new OutboundLine("PRIVMSG", "#meow", "bulk", MessagePriority.BULK);
+        OutboundLine next = new OutboundLine("PRIVMSG", "#purr", "next");
+
+        OutboundQueue queue = new OutboundQueue(2, QueueOverflowPolicy.DROP_OLDEST, 0);
+        queue.add(old);
+        queue.add(bulk);
+        Assert.assertSame(old, queue.add(next));
+        Assert.assertFalse(queue.contains(old));
+        Assert.assertEquals(2, queue.size());
+
+        queue = new OutboundQueue(2, QueueOverflowPolicy.DROP_NEWEST, 0);
+        queue.add(old);
+        queue.add(bulk);
+        Assert.assertSame(next, queue.add(next));
+        Assert.assertFalse(queue.contains(next));
+
+        queue = new OutboundQueue(2, QueueOverflowPolicy.DROP_LOWEST_PRIORITY, 0);
+        queue.add(old);
+        queue.add(bulk);
+        Assert.assertSame(bulk, queue.add(next));
+        Assert.assertSame(old, queue.poll());
+        Assert.assertSame(next, queue.poll());
+        queue.add(old);
+        queue.add(next);
+        OutboundLine another = new OutboundLine("PRIVMSG", "#kitteh", "another");
+        Assert.assertSame(another, queue.add(another));
+    }
+
+    /**
+     * Tests that CONTROL lines are never rejected or dropped.
+     */
+    @Test
+    public void control() {
+        OutboundLine chat = new OutboundLine("PRIVMSG", "#kitteh", "chat");
+        OutboundLine who = new OutboundLine("WHO #kitteh", MessagePriority.CONTROL);
+        OutboundLine join = new OutboundLine("JOIN #meow", MessagePriority.CONTROL);
+
+        OutboundQueue queue = new OutboundQueue(1, QueueOverflowPolicy.REJECT, 0);
+        queue.add(chat);
+        Assert.assertNull(queue.add(who));
+        Assert.assertEquals(2, queue.size());
+
+        queue = new OutboundQueue(1, QueueOverflowPolicy.DROP_OLDEST, 0);
+        queue.add(who);
+        queue.add(chat);
+        OutboundLine next = new OutboundLine("PRIVMSG", "#kitteh", "next");
+        Assert.assertSame(chat, queue.add(next));
+        Assert.assertTrue(queue.contains(who));
+
+        queue = new OutboundQueue(1, QueueOverflowPolicy.DROP_NEWEST, 0);
+        queue.add(chat);
+        Assert.assertNull(queue.add(join));
+        Assert.assertTrue(queue.contains(join));
+    }
+
+    /**
+     * Tests removing a whole priority.
+     */
+    @Test
+    public void removePriority() {
+        OutboundQueue queue = new OutboundQueue();
+        OutboundLine chat = new OutboundLine("PRIVMSG", "#kitteh", "chat");
+        queue.add(new OutboundLine("WHO #kitteh", MessagePriority.CONTROL));
+        queue.add(new OutboundLine("JOIN #meow", MessagePriority.CONTROL));
+        queue.add(chat);
+        queue.removePriority(MessagePriority.CONTROL);
+        Assert.assertEquals(1, queue.size());
+        Assert.assertFalse(queue.contains(new OutboundLine("WHO #kitteh")));
+        Assert.assertSame(chat, queue.poll());
+    }
+
+    /**
+     * Tests the high watermark fires once per crossing.
+     */
+    @Test
+    public void highWatermark() {
+        List<Integer> reached = new ArrayList<>();
+        OutboundQueue queue = new OutboundQueue(Integer.MAX_VALUE, QueueOverflowPolicy.REJECT, 0, 2, reached::add);
+        queue.add(new OutboundLine("PRIVMSG", "#kitteh", "1"));
+        queue.add(new OutboundLine("PRIVMSG", "#kitteh", "2"));
+        queue.add(new OutboundLine("PRIVMSG", "#kitteh", "3"));
+        Assert.assertEquals(Collections.singletonList(2), reached);
+        queue.poll();
+        queue.add(new OutboundLine("PRIVMSG", "#kitteh", "4"));
+        Assert.assertEquals(1, reached.size());
+        queue.poll();
+        queue.poll();
+        queue.add(new OutboundLine("PRIVMSG", "#kitteh", "5"));
+        Assert.assertEquals(2, reached.size());
+    }
+
+    /**
+     * Tests expiry and removal of old lines.
+     */
+    @Test
+    public void expiry() {
+        OutboundQueue queue = new OutboundQueue(Integer.MAX_VALUE, QueueOverflowPolicy.REJECT, 1000);
+        OutboundLine line = new OutboundLine("PRIVMSG", "#kitteh", "meow");
+        queue.add(line);
+        long now = System.currentTimeMillis();
+        Assert.assertSame(line, queue.peek(now));
+        Assert.assertNull(queue.peek(now + 1000));
+        Assert.assertTrue(queue.isEmpty());
+
+        queue.add(line);
+        queue.add(new OutboundLine("PRIVMSG", "#meow", "purr"));
+        queue.removeQueuedBefore(now - 1000);
+        Assert.assertEquals(2, queue.size());
+        queue.removeQueuedBefore(System.currentTimeMillis() + 1);
+        Assert.assertTrue(queue.isEmpty());
+        Assert.assertFalse(queue.contains(line));
+    }
+}
\ No newline at end of file
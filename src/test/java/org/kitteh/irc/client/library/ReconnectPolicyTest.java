@@ -0,0 +1,54 @@
+package org.kitteh.irc.client.library;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Makes sure reconnects back off as configured.
+ */
+public class ReconnectPolicyTest {
+    /**
+     * Tests doubling up to the maximum and giving up.
+     */
+    @Test
+    public void exponential() {
+        ReconnectPolicy policy = new BackoffReconnectPolicy(1000, 5000, 5, false);
+        Assert.assertEquals(1000, policy.getDelay(1, 0));
+        Assert.assertEquals(2000, policy.getDelay(2, 1000));
+        Assert.assertEquals(4000, policy.getDelay(3, 2000));
+        Assert.assertEquals(5000, policy.getDelay(4, 4000));
+        Assert.assertEquals(5000, policy.getDelay(5, 5000));
+        Assert.assertTrue(policy.getDelay(6, 5000) < 0);
+        Assert.assertEquals(Long.MAX_VALUE, new BackoffReconnectPolicy(1000, Long.MAX_VALUE, 0, false).getDelay(100, 0));
+    }
+
+    /**
+     * Tests decorrelated jitter stays within bounds.
+     */
+    @Test
+    public void jitter() {
+        ReconnectPolicy policy = new BackoffReconnectPolicy(1000, 60000, 0, true);
+        long delay = 0;
+        for (int attempt = 1; attempt < 100; attempt++) {
+            long next = policy.getDelay(attempt, delay);
+            Assert.assertTrue(next >= 1000);
+            Assert.assertTrue(next <= Math.min(60000, Math.max(1000, delay * 3)));
+            delay = next;
+        }
+    }
+
+    /**
+     * Tests decorrelated jitter with a maximum large enough to overflow.
+     */
+    @Test
+    public void jitterLarge() {
+        ReconnectPolicy policy = new BackoffReconnectPolicy(1000, Long.MAX_VALUE, 0, true);
+        long delay = Long.MAX_VALUE / 2;
+        for (int attempt = 1; attempt < 100; attempt++) {
+            delay = policy.getDelay(attempt, delay);
+            Assert.assertTrue(delay >= 1000);
+        }
+        ReconnectPolicy fixed = new BackoffReconnectPolicy(Long.MAX_VALUE, Long.MAX_VALUE, 0, true);
+        Assert.assertEquals(Long.MAX_VALUE, fixed.getDelay(1, Long.MAX_VALUE));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,209 @@
+package org.kitteh.irc.client.library.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.kitteh.irc.client.library.CaseMapping;
+import org.kitteh.irc.client.library.FakeClient;
+
+import java.util.AbstractMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Makes sure case insensitive collections follow the case mapping.
+ */
+public class CIKeyMapTest {
+    /**
+     * Tests case insensitive collections across a case mapping change.
+     */
+    @Test
+    public void collections() {
+        FakeClient client = new FakeClient();
+        client.setCaseMapping(CaseMapping.ASCII);
+        Map<String, Integer> map = new CIKeyMap<>(client);
+        Set<String> set = new CISet(client);
+        map.put("[Kitteh]", 1);
+        set.add("[Kitteh]");
+        Assert.assertEquals(Integer.valueOf(1), map.get("[KITTEH]"));
+        Assert.assertNull(map.get("{kitteh}"));
+        Assert.assertFalse(set.contains("{kitteh}"));
+
+        client.setCaseMapping(CaseMapping.RFC1459);
+        Assert.assertEquals(Integer.valueOf(1), map.get("{kitteh}"));
+        Assert.assertTrue(set.contains("{kitteh}"));
+        map.put("{KITTEH}", 2);
+        Assert.assertEquals(1, map.size());
+        Assert.assertEquals(Collections.singleton("{KITTEH}"), map.keySet());
+        Assert.assertTrue(set.remove("{kitteh}"));
+        Assert.assertTrue(set.isEmpty());
+    }
+
+    /**
+     * Tests that map views follow later changes and write through.
+     */
+    @Test
+    public void views() {
+        FakeClient client = new FakeClient();
+        Map<String, Integer> map = new CIKeyMap<>(client);
+        Set<String> keys = map.keySet();
+        Collection<Integer> values = map.values();
+        Set<Map.Entry<String, Integer>> entries = map.entrySet();
+        map.put("Kitteh", 1);
+        Assert.assertTrue(keys.contains("KITTEH"));
+        Assert.assertTrue(values.contains(1));
+        Assert.assertTrue(entries.contains(new AbstractMap.SimpleEntry<>("kitteh", 1)));
+
+        entries.iterator().next().setValue(2);
+        Assert.assertEquals(Integer.valueOf(2), map.get("kitteh"));
+        Assert.assertEquals(Integer.valueOf(3), map.computeIfPresent("KITTEH", (key, value) -> value + 1));
+        Assert.assertEquals(Integer.valueOf(3), map.computeIfAbsent("kitteh", key -> 4));
+        Assert.assertEquals(Collections.singleton("Kitteh"), keys);
+
+        client.setCaseMapping(CaseMapping.ASCII);
+        map.put("[Kitteh]", 5);
+        Assert.assertEquals(2, keys.size());
+        Iterator<Integer> iterator = values.iterator();
+        while (iterator.hasNext()) {
+            if (Integer.valueOf(5).equals(iterator.next())) {
+                iterator.remove();
+            }
+        }
+        Assert.assertFalse(map.containsKey("[kitteh]"));
+        Assert.assertTrue(keys.remove("kitteh"));
+        Assert.assertTrue(map.isEmpty());
+    }
+
+    /**
+     * Tests keys kept by the caller across a case mapping change.
+     */
+    @Test
+    public void keptKeys() {
+        FakeClient client = new FakeClient();
+        client.setCaseMapping(CaseMapping.ASCII);
+        CIKeyMap<Integer> map = new CIKeyMap<>(client);
+        CIKey key = new CIKey("[Kitteh]", CaseMapping.ASCII);
+        map.putByKey(key, 1);
+        Assert.assertEquals(Integer.valueOf(1), map.getByKey(key));
+        Assert.assertEquals(Integer.valueOf(1), map.get("[KITTEH]"));
+
+        client.setCaseMapping(CaseMapping.RFC1459);
+        Assert.assertEquals(Integer.valueOf(1), map.getByKey(key));
+        Assert.assertEquals(Integer.valueOf(1), map.getByKey(new CIKey("{kitteh}", CaseMapping.RFC1459)));
+        Assert.assertEquals(Integer.valueOf(1), map.removeByKey(key));
+        Assert.assertTrue(map.isEmpty());
+    }
+
+    /**
+     * Tests writers racing case mapping changes, so writes land on storage
+     * being rebuilt and have to wait for the new storage.
+     *
+     * @throws InterruptedException if interrupted
+     */
+    @Test
+    public void concurrentRebuild() throws InterruptedException {
+        final int writers = 4;
+        final int perWriter = 2000;
+        FakeClient client = new FakeClient();
+        client.setCaseMapping(CaseMapping.ASCII);
+        Map<String, Integer> map = new CIKeyMap<>(client);
+        Set<String> set = new CISet(client);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(writers);
+        Thread[] threads = new Thread[writers];
+        for (int writer = 0; writer < writers; writer++) {
+            final int id = writer;
+            threads[writer] = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < perWriter; i++) {
+                        String key = "[Kitteh" + id + '-' + i + ']';
+                        map.put(key, i);
+                        set.add(key);
+                        if ((i % 2) == 1) {
+                            map.remove(key);
+                            set.remove(key);
+                        }
+                    }
+                } catch (InterruptedException ignored) {
+                } finally {
+                    done.countDown();
+                }
+            });
+            threads[writer].start();
+        }
+        start.countDown();
+        boolean rfc = false;
+        while (done.getCount() > 0) {
+            rfc = !rfc;
+            client.setCaseMapping(rfc ? CaseMapping.RFC1459 : CaseMapping.ASCII);
+            map.size(); // Rebuilds right away
+            set.size();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        client.setCaseMapping(CaseMapping.RFC1459);
+        Assert.assertEquals(writers * perWriter / 2, map.size());
+        Assert.assertEquals(writers * perWriter / 2, set.size());
+        for (int writer = 0; writer < writers; writer++) {
+            for (int i = 0; i < perWriter; i++) {
+                String key = "{kitteh" + writer + '-' + i + '}';
+                Assert.assertEquals(key, ((i % 2) == 0) ? Integer.valueOf(i) : null, map.get(key));
+                Assert.assertEquals(key, (i % 2) == 0, set.contains(key));
+            }
+        }
+    }
+
+    /**
+     * Tests compute writes racing case mapping changes, each of which must
+     * take effect exactly once.
+     *
+     * @throws InterruptedException if interrupted
+     */
+    @Test
+    public void concurrentCompute() throws InterruptedException {
+        final int writers = 4;
+        final int perWriter = 5000;
+        FakeClient client = new FakeClient();
+        client.setCaseMapping(CaseMapping.ASCII);
+        Map<String, Integer> map = new CIKeyMap<>(client);
+        map.put("[Present]", 0);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(writers);
+        Thread[] threads = new Thread[writers];
+        for (int writer = 0; writer < writers; writer++) {
+            threads[writer] = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < perWriter; i++) {
+                        map.compute("[Kitteh]", (key, value) -> (value == null) ? 1 : (value + 1));
+                        map.computeIfPresent("[Present]", (key, value) -> value + 1);
+                    }
+                } catch (InterruptedException ignored) {
+                } finally {
+                    done.countDown();
+                }
+            });
+            threads[writer].start();
+        }
+        start.countDown();
+        boolean rfc = false;
+        while (done.getCount() > 0) {
+            rfc = !rfc;
+            client.setCaseMapping(rfc ? CaseMapping.RFC1459 : CaseMapping.ASCII);
+            map.size(); // Rebuilds right away
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        client.setCaseMapping(CaseMapping.RFC1459);
+        Assert.assertEquals(Integer.valueOf(writers * perWriter), map.get("{kitteh}"));
+        Assert.assertEquals(Integer.valueOf(writers * perWriter), map.get("{present}"));
+    }
+}
\ No newline at end of file
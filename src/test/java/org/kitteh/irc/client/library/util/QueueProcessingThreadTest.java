@@ -0,0 +1,98 @@
+package org.kitteh.irc.client.library.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests the QueueProcessingThread class.
+ */
+public class QueueProcessingThreadTest {
+    private static final class Collector extends QueueProcessingThread<int[]> {
+        private final List<int[]> processed = new ArrayList<>();
+        private final CountDownLatch latch;
+        private final CountDownLatch cleaned = new CountDownLatch(1);
+        private volatile Queue<int[]> remaining;
+
+        private Collector(int expected) {
+            super("Collector");
+            this.latch = new CountDownLatch(expected);
+        }
+
+        @Override
+        protected void processElement(int[] element) {
+            this.processed.add(element);
+            this.latch.countDown();
+        }
+
+        @Override
+        protected void cleanup(Queue<int[]> remainingQueue) {
+            this.remaining = remainingQueue;
+            this.cleaned.countDown();
+        }
+    }
+
+    /**
+     * Tests that items from several producers all arrive, in order per
+     * producer.
+     *
+     * @throws InterruptedException if interrupted
+     */
+    @Test
+    public void multipleProducers() throws InterruptedException {
+        final int producers = 4;
+        final int items = 10000;
+        Collector collector = new Collector(producers * items);
+        List<Thread> threads = new ArrayList<>();
+        for (int producer = 0; producer < producers; producer++) {
+            final int id = producer;
+            Thread thread = new Thread(() -> {
+                for (int item = 0; item < items; item++) {
+                    collector.queue(new int[]{id, item});
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertTrue(collector.latch.await(10, TimeUnit.SECONDS));
+        collector.interrupt();
+        Assert.assertTrue(collector.cleaned.await(10, TimeUnit.SECONDS));
+        Assert.assertTrue(collector.remaining.isEmpty());
+
+        int[] next = new int[producers];
+        for (int[] element : collector.processed) {
+            Assert.assertEquals(next[element[0]]++, element[1]);
+        }
+    }
+
+    /**
+     * Tests that a batch arrives in order, interleaved whole with single
+     * items.
+     *
+     * @throws InterruptedException if interrupted
+     */
+    @Test
+    public void batch() throws InterruptedException {
+        Collector collector = new Collector(5);
+        collector.queue(new int[]{0});
+        collector.queueAll(Arrays.asList(new int[]{1}, new int[]{2}, new int[]{3}));
+        collector.queueAll(Collections.emptyList());
+        collector.queue(new int[]{4});
+        Assert.assertTrue(collector.latch.await(10, TimeUnit.SECONDS));
+        collector.interrupt();
+        Assert.assertTrue(collector.cleaned.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < 5; i++) {
+            Assert.assertEquals(i, collector.processed.get(i)[0]);
+        }
+    }
+}
\ No newline at end of file